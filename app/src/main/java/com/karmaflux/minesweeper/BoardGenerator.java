@@ -0,0 +1,275 @@
+package com.karmaflux.minesweeper;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import com.karmaflux.minesweeper.core.BoardCodec;
+import com.karmaflux.minesweeper.core.EndlessBoard;
+import com.karmaflux.minesweeper.core.GameJournal;
+import com.karmaflux.minesweeper.core.IBoard;
+import com.karmaflux.minesweeper.core.MineBoard;
+
+/**
+ * Builds new boards on a background thread so large or no-guess boards never block the UI,
+ * and decodes saved ones there too, since decoding regenerates the board from its seed.
+ * Only one game is generated for the screen at a time, its result is handed to the attached
+ * handler on the main thread. A spare board for the current settings can be made ahead of
+ * time, so the next game starts instantly.
+ * <p>
+ * Every method must be called on the main thread.
+ */
+class BoardGenerator {
+    private static final String TAG = "BoardGenerator";
+    private static final long SOLVABLE_GENERATION_BUDGET_MS = 500;
+
+    interface IGameReadyHandler {
+        void GameReady(NewGame game);
+
+        void GenerationFailed();
+    }
+
+    /**
+     * A generated board, already free dug if the settings asked for it. The generator keeps
+     * no reference to it once handed over.
+     */
+    static final class NewGame {
+        final IBoard board;
+        final boolean freeDig;
+        final boolean resumed; // continues the autosave, earlier moves are not known
+        final Bundle viewState; // the view's saved state for a restored game, null otherwise
+        final boolean solvableNotFound; // no-guess was asked for, but this board may need a guess
+
+        NewGame(IBoard board, boolean freeDig, boolean resumed, Bundle viewState, boolean solvableNotFound) {
+            this.board = board;
+            this.freeDig = freeDig;
+            this.resumed = resumed;
+            this.viewState = viewState;
+            this.solvableNotFound = solvableNotFound;
+        }
+    }
+
+    // The preferences a board was generated for, a spare is only used if they still match
+    private static final class Settings {
+        final int sizeX;
+        final int sizeY;
+        final float difficulty;
+        final boolean freeDig;
+        final boolean solvable;
+        final boolean endless;
+
+        Settings(Preferences preferences) {
+            sizeX = preferences.getSizeX();
+            sizeY = preferences.getSizeY();
+            difficulty = preferences.getDifficulty();
+            freeDig = preferences.isFreeDig();
+            solvable = preferences.isSolvable();
+            endless = preferences.isEndless();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Settings)) {
+                return false;
+            }
+            final Settings s = (Settings) o;
+            return sizeX == s.sizeX && sizeY == s.sizeY && difficulty == s.difficulty
+                    && freeDig == s.freeDig && solvable == s.solvable && endless == s.endless;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((sizeX * 31 + sizeY) * 31 + Float.floatToIntBits(difficulty)) * 8
+                    + (freeDig ? 4 : 0) + (solvable ? 2 : 0) + (endless ? 1 : 0);
+        }
+    }
+
+    private class Job extends FutureTask<NewGame> {
+        Job(Callable<NewGame> callable) {
+            super(callable);
+        }
+
+        @Override
+        protected void done() {
+            mainHandler.post(() -> deliver(this));
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "BoardGenerator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Job pending;
+    private IGameReadyHandler handler;
+    private Job spare;
+    private Settings spareSettings;
+
+    /**
+     * Starts the next game from the preferences, taking their one-shot game code and resume
+     * requests. Replaces any game still being generated.
+     */
+    void start(Preferences preferences, GameJournal journal, IGameReadyHandler handler) {
+        cancel();
+        this.handler = handler;
+        final Settings settings = new Settings(preferences);
+        final boolean resume = preferences.takeResumeSavedGame();
+        final Long seed = preferences.takeGameSeed();
+
+        if (!resume && seed == null && spare != null && settings.equals(spareSettings)) {
+            final Job job = spare;
+            pending = job;
+            spare = null;
+            if (job.isDone()) {
+                mainHandler.post(() -> deliver(job));
+            }
+            return;
+        }
+        cancelSpare();
+        pending = new Job(() -> {
+            if (resume) {
+                final GameJournal.SavedGame savedGame = journal.restore();
+                if (savedGame != null) {
+                    return new NewGame(savedGame.getBoard(), savedGame.isFreeDig(), true, null, false);
+                }
+            }
+            return generate(settings, seed);
+        });
+        executor.execute(pending);
+    }
+
+    /**
+     * Decodes a game saved by a view that is being recreated, handing it back with the rest of
+     * the view's state. Replaces any game still being generated.
+     *
+     * @param viewState Holds the board as "board" (BoardCodec) or "endless" (EndlessBoard.encode())
+     *                  bytes, and "freeDig"
+     */
+    void restore(Bundle viewState) {
+        cancel();
+        pending = new Job(() -> {
+            final byte[] endless = viewState.getByteArray("endless");
+            final IBoard board = endless != null
+                    ? EndlessBoard.decode(endless)
+                    : BoardCodec.decode(viewState.getByteArray("board"));
+            return new NewGame(board, viewState.getBoolean("freeDig"), false, viewState, false);
+        });
+        executor.execute(pending);
+    }
+
+    /**
+     * Generates a spare game for the current preferences in the background, if there is none
+     */
+    void prepareNext(Preferences preferences) {
+        final Settings settings = new Settings(preferences);
+        if (spare != null && settings.equals(spareSettings)) {
+            return;
+        }
+        cancelSpare();
+        spareSettings = settings;
+        spare = new Job(() -> generate(settings, null));
+        executor.execute(spare);
+    }
+
+    boolean isGenerating() {
+        return pending != null;
+    }
+
+    /**
+     * Hands the game being generated to a new handler, for a view recreated meanwhile
+     */
+    void attach(IGameReadyHandler handler) {
+        this.handler = handler;
+        if (pending != null && pending.isDone()) {
+            deliver(pending);
+        }
+    }
+
+    /**
+     * Stops handing over results but keeps generating, for a view that is only being recreated
+     */
+    void detach() {
+        handler = null;
+    }
+
+    /**
+     * Abandons the game being generated
+     */
+    void cancel() {
+        handler = null;
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    private void cancelSpare() {
+        if (spare != null) {
+            spare.cancel(true);
+            spare = null;
+            spareSettings = null;
+        }
+    }
+
+    private void deliver(Job job) {
+        if (job != pending || handler == null) {
+            return; // a spare, cancelled, or waiting for a handler to attach
+        }
+        final IGameReadyHandler handler = this.handler;
+        pending = null;
+        this.handler = null;
+        final NewGame game;
+        try {
+            game = job.get(); // done, never blocks
+        } catch (InterruptedException | ExecutionException e) {
+            Log.e(TAG, "Board generation failed", e.getCause() != null ? e.getCause() : e);
+            handler.GenerationFailed();
+            return;
+        }
+        handler.GameReady(game);
+    }
+
+    // Background thread
+    private static NewGame generate(Settings settings, Long seed) {
+        if (settings.endless) {
+            final EndlessBoard board = new EndlessBoard(settings.difficulty, new Random().nextLong());
+            board.freeDig();
+            return new NewGame(board, true, false, null, false);
+        }
+
+        MineBoard board;
+        boolean solvableNotFound = false;
+        if (seed != null) { // entered game code, already the exact board wanted
+            board = new MineBoard(settings.sizeX, settings.sizeY, settings.difficulty, seed);
+        } else if (settings.solvable) {
+            board = MineBoard.generateSolvable(settings.sizeX, settings.sizeY, settings.difficulty,
+                    SOLVABLE_GENERATION_BUDGET_MS);
+            if (board == null) {
+                // dense boards are rarely solvable, play a regular one and tell the player
+                solvableNotFound = true;
+                board = new MineBoard(settings.sizeX, settings.sizeY, settings.difficulty);
+            }
+        } else {
+            board = new MineBoard(settings.sizeX, settings.sizeY, settings.difficulty);
+        }
+        final boolean freeDig = settings.freeDig || settings.solvable; // no-guess boards are solved from the free cell
+        if (freeDig) {
+            board.freeDig();
+        }
+        return new NewGame(board, freeDig, false, null, solvableNotFound);
+    }
+}
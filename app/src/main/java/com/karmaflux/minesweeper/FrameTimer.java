@@ -0,0 +1,110 @@
+package com.karmaflux.minesweeper;
+
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.annotation.RequiresApi;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Debug aid comparing the grid renderers: collects the frame time of every frame drawn while
+ * the board is on screen, grouped by the renderer that drew it, and logs a summary per renderer.
+ * Bytes allocated between frames are counted too, they cover the whole process, so compare
+ * renderers against each other rather than reading them as a per frame cost.
+ */
+@RequiresApi(24)
+class FrameTimer implements Window.OnFrameMetricsAvailableListener {
+    private static final String TAG = "FrameTimer";
+    private static final int LOG_EVERY = 240;
+    private static final long JANK_NANOS = 16_666_667L;
+
+    private static class Stats {
+        int frames;
+        long totalNanos;
+        long maxNanos;
+        int janky;
+        long allocatedBytes;
+    }
+
+    private final SweeperGridView view;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Stats> stats = new HashMap<>();
+    private Window window;
+    private long lastAllocatedBytes = -1;
+
+    FrameTimer(SweeperGridView view) {
+        this.view = view;
+    }
+
+    void start(Window window) {
+        this.window = window;
+        window.addOnFrameMetricsAvailableListener(this, handler);
+    }
+
+    void stop() {
+        if (window != null) {
+            window.removeOnFrameMetricsAvailableListener(this);
+            window = null;
+        }
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            log(entry.getKey(), entry.getValue());
+        }
+        stats.clear();
+    }
+
+    // Called on the main thread, so the renderer name matches the frame just drawn
+    @Override
+    public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCountSinceLastInvocation) {
+        final long nanos = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION);
+        final String renderer = view.getRendererName();
+        Stats s = stats.get(renderer);
+        if (s == null) {
+            s = new Stats();
+            stats.put(renderer, s);
+        }
+        s.frames++;
+        s.totalNanos += nanos;
+        s.maxNanos = Math.max(s.maxNanos, nanos);
+        if (nanos > JANK_NANOS) {
+            s.janky++;
+        }
+        final long allocatedBytes = allocatedBytes();
+        if (lastAllocatedBytes >= 0 && allocatedBytes >= lastAllocatedBytes) {
+            s.allocatedBytes += allocatedBytes - lastAllocatedBytes;
+        }
+        lastAllocatedBytes = allocatedBytes;
+        if (s.frames == LOG_EVERY) {
+            log(renderer, s);
+            stats.remove(renderer);
+        }
+    }
+
+    private static void log(String renderer, Stats s) {
+        if (s.frames == 0) {
+            return;
+        }
+        Log.d(TAG, String.format(Locale.US, "%s: %d frames, avg %.2f ms, max %.2f ms, %d over 16.7 ms, %.1f KB allocated per frame",
+                renderer, s.frames, s.totalNanos / 1e6 / s.frames, s.maxNanos / 1e6, s.janky,
+                s.allocatedBytes / 1024.0 / s.frames));
+    }
+
+    // -1 if the runtime does not report it
+    private static long allocatedBytes() {
+        final String value = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -1,15 +1,27 @@
 package com.karmaflux.minesweeper;
 
+import android.os.Build;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
 import androidx.navigation.fragment.NavHostFragment;
 
-public class GameFragment extends Fragment implements SweeperGridView.IGameOverHandler {
+public class GameFragment extends Fragment implements SweeperGridView.IGameOverHandler, SweeperGridView.IStatusHandler,
+        BoardGenerator.IGameReadyHandler {
+    private TextView tvStatus;
+    private TextView tvGameCode;
+    private SweeperGridView gv;
+    private CheckBox cbHints;
+    private View progressGenerating;
+    private FrameTimer frameTimer; // debug builds only
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         return inflater.inflate(R.layout.fragment_game, container, false);
@@ -18,23 +30,131 @@ public class GameFragment extends Fragment implements SweeperGridView.IGameOverH
     public void onViewCreated(@NonNull View view, Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        SweeperGridView gv = requireView().findViewById(R.id.sweeperGridView);
-        gv.setup((MainActivity) requireActivity(), this);
+        tvStatus = view.findViewById(R.id.tvGameStatus);
+        tvGameCode = view.findViewById(R.id.tvGameCode);
+        progressGenerating = view.findViewById(R.id.progressGenerating);
+        gv = requireView().findViewById(R.id.sweeperGridView);
+        gv.setup((MainActivity) requireActivity(), this, this);
+
+        cbHints = view.findViewById(R.id.checkBoxHints);
+        cbHints.setOnCheckedChangeListener((buttonView, isChecked) -> gv.setShowHints(isChecked));
+
+        if (BuildConfig.DEBUG) {
+            CheckBox cbMetrics = view.findViewById(R.id.checkBoxMetrics);
+            cbMetrics.setVisibility(View.VISIBLE);
+            cbMetrics.setOnCheckedChangeListener((buttonView, isChecked) -> gv.setShowMetrics(isChecked));
+        }
+        if (BuildConfig.DEBUG && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            CheckBox cbBatched = view.findViewById(R.id.checkBoxBatched);
+            cbBatched.setVisibility(View.VISIBLE);
+            cbBatched.setChecked(gv.isBatchedRendering());
+            cbBatched.setOnCheckedChangeListener((buttonView, isChecked) -> gv.setBatchedRendering(isChecked));
+            CheckBox cbAtlas = view.findViewById(R.id.checkBoxAtlas);
+            cbAtlas.setVisibility(View.VISIBLE);
+            cbAtlas.setChecked(gv.isAtlasRendering());
+            cbAtlas.setOnCheckedChangeListener((buttonView, isChecked) -> gv.setAtlasRendering(isChecked));
+            frameTimer = new FrameTimer(gv);
+            frameTimer.start(requireActivity().getWindow());
+        }
 
         view.findViewById(R.id.btnGameToMenu).setOnClickListener(v ->
                 NavHostFragment.findNavController(GameFragment.this)
                         .popBackStack());
     }
 
+    // After the view restored its state, which hands a saved board to the generator to decode
+    @Override
+    public void onViewStateRestored(Bundle savedInstanceState) {
+        super.onViewStateRestored(savedInstanceState);
+        final MainActivity mainActivity = (MainActivity) requireActivity();
+        final BoardGenerator generator = mainActivity.getBoardGenerator();
+        if (generator.isGenerating()) {
+            showGenerating(true);
+            generator.attach(this);
+        } else if (!gv.hasBoard()) {
+            showGenerating(true);
+            generator.start(mainActivity.getPreferences(), mainActivity.getGameJournal(), this);
+        } else {
+            showGenerating(false);
+        }
+    }
+
+    @Override
+    public void GameReady(BoardGenerator.NewGame game) {
+        gv.startGame(game);
+        showGenerating(false);
+        if (game.solvableNotFound) {
+            Toast.makeText(requireContext(), R.string.solvable_not_found, Toast.LENGTH_LONG).show();
+        }
+    }
+
+    @Override
+    public void GenerationFailed() {
+        Toast.makeText(requireContext(), R.string.generation_failed, Toast.LENGTH_LONG).show();
+        NavHostFragment.findNavController(GameFragment.this)
+                .popBackStack();
+    }
+
+    private void showGenerating(boolean generating) {
+        progressGenerating.setVisibility(generating ? View.VISIBLE : View.GONE);
+        gv.setVisibility(generating ? View.INVISIBLE : View.VISIBLE);
+        if (generating) {
+            tvStatus.setText(R.string.generating_board);
+            tvGameCode.setVisibility(View.GONE);
+        }
+        cbHints.setVisibility(generating || gv.isEndless() ? View.GONE : View.VISIBLE); // odds need a bounded board
+    }
+
+    @Override
+    public void onDestroyView() {
+        // backing out abandons the board being generated, a rotation picks it up again
+        final BoardGenerator generator = ((MainActivity) requireActivity()).getBoardGenerator();
+        if (requireActivity().isChangingConfigurations()) {
+            generator.detach();
+        } else {
+            generator.cancel();
+        }
+        if (frameTimer != null) {
+            frameTimer.stop();
+            frameTimer = null;
+        }
+        super.onDestroyView();
+    }
+
+    @Override
+    public void StatusChanged(int cellsLeft, int flagsPlaced, int bombs) {
+        tvStatus.setText(getString(R.string.game_status, cellsLeft, flagsPlaced, bombs));
+    }
+
+    @Override
+    public void GameCodeChanged(String gameCode) {
+        tvGameCode.setVisibility(gameCode != null ? View.VISIBLE : View.GONE);
+        if (gameCode != null) {
+            tvGameCode.setText(getString(R.string.game_code, gameCode));
+        }
+    }
+
+    @Override
+    public void EndlessStatusChanged(long cellsCleared, int flagsPlaced) {
+        tvStatus.setText(getString(R.string.game_status_endless, cellsCleared, flagsPlaced));
+    }
+
     @Override
     public void Win() {
         NavHostFragment.findNavController(GameFragment.this)
-                .navigate(R.id.action_GameFragment_to_WinFragment);
+                .navigate(R.id.action_GameFragment_to_WinFragment, replayArguments());
     }
 
     @Override
     public void Lose() {
         NavHostFragment.findNavController(GameFragment.this)
-                .navigate(R.id.action_GameFragment_to_LoseFragment);
+                .navigate(R.id.action_GameFragment_to_LoseFragment, replayArguments());
+    }
+
+    // the finished game for the share button of the win and lose screens
+    private Bundle replayArguments() {
+        final Bundle arguments = new Bundle();
+        arguments.putString(MainActivity.ARG_REPLAY, gv.getReplay());
+        return arguments;
     }
 }
\ No newline at end of file
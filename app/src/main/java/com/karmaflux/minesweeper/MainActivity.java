@@ -1,12 +1,28 @@
 package com.karmaflux.minesweeper;
 
+import android.content.Intent;
 import android.media.AudioAttributes;
 import android.media.SoundPool;
 import android.os.Bundle;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.karmaflux.minesweeper.core.GameJournal;
+import com.karmaflux.minesweeper.core.Metrics;
+import com.karmaflux.minesweeper.core.MineBoard;
+
 public class MainActivity extends AppCompatActivity {
+    // Fragment argument holding a finished game as GameReplay text
+    static final String ARG_REPLAY = "replay";
+
+    // One per process, so a recreated activity never has two writers on the same files
+    private static GameJournal gameJournal;
+    // Outlives the activity too, so a board still being generated survives a rotation
+    private static BoardGenerator boardGenerator;
+
     private SoundPool soundPool;
     private int shovelSound;
     private int explosionSound;
@@ -17,11 +33,38 @@ public class MainActivity extends AppCompatActivity {
         return preferences;
     }
 
+    GameJournal getGameJournal() {
+        return gameJournal;
+    }
+
+    BoardGenerator getBoardGenerator() {
+        return boardGenerator;
+    }
+
+    /**
+     * Offers a finished game to other apps as text, game code first so it can also be played
+     * again from the menu
+     */
+    void shareReplay(String replay) {
+        final Intent intent = new Intent(Intent.ACTION_SEND)
+                .setType("text/plain")
+                .putExtra(Intent.EXTRA_TEXT, replay);
+        startActivity(Intent.createChooser(intent, getString(R.string.share_replay)));
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        MineBoard.setDebugChecks(BuildConfig.DEBUG);
+        Metrics.setEnabled(BuildConfig.DEBUG);
         preferences = new Preferences(getSharedPreferences("main", MODE_PRIVATE));
         preferences.restore();
+        if (gameJournal == null) {
+            gameJournal = new GameJournal(getFilesDir());
+        }
+        if (boardGenerator == null) {
+            boardGenerator = new BoardGenerator();
+        }
         setContentView(R.layout.activity_main);
     }
 
@@ -54,6 +97,19 @@ public class MainActivity extends AppCompatActivity {
         preferences.restore();
     }
 
+    /**
+     * Prints the hot path metrics with adb shell dumpsys activity com.karmaflux.minesweeper/.MainActivity,
+     * adding "reset" clears them afterwards for the next run
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(Metrics.dump());
+        if (args != null && args.length > 0 && "reset".equals(args[0])) {
+            Metrics.reset();
+        }
+    }
+
     private void playSound(int soundId) {
         if (soundPool != null) {
             soundPool.play(soundId, 1.0f, 1.0f, 0, 0, 1.0f);
@@ -12,11 +12,15 @@ import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.SeekBar;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
 import androidx.navigation.fragment.NavHostFragment;
 
+import com.karmaflux.minesweeper.core.GameCode;
+import com.karmaflux.minesweeper.core.MineBoard;
+
 public class MenuFragment extends Fragment {
     private TextView tvDifficulty;
 
@@ -40,11 +44,15 @@ public class MenuFragment extends Fragment {
         EditText etSizeY = view.findViewById(R.id.fieldY);
         SeekBar skDifficulty = view.findViewById(R.id.seekBar);
         CheckBox cbFreeDig = view.findViewById(R.id.checkBoxFreeDig);
+        CheckBox cbSolvable = view.findViewById(R.id.checkBoxSolvable);
+        CheckBox cbEndless = view.findViewById(R.id.checkBoxEndless);
         TextView tvLargeWarning = view.findViewById(R.id.tvLargeBoardWarning);
         tvDifficulty = view.findViewById(R.id.textViewDifficulty);
         updateTvDifficulty();
 
         cbFreeDig.setChecked(prefs.isFreeDig());
+        cbSolvable.setChecked(prefs.isSolvable());
+        cbEndless.setChecked(prefs.isEndless());
 
         tvLargeWarning.setVisibility(Math.max(prefs.getSizeX(), prefs.getSizeY()) > 16 ? View.VISIBLE : View.INVISIBLE);
 
@@ -84,7 +92,7 @@ public class MenuFragment extends Fragment {
         etSizeX.addTextChangedListener(new TextWatcher() {
             public void afterTextChanged(Editable s) {
                 try {
-                    prefs.setSizeX(Math.max(4, Math.min(48, Math.max(Integer.parseInt(etSizeX.getText().toString()), 2))));
+                    prefs.setSizeX(Math.max(GameCode.MIN_BOARD_SIZE, Math.min(GameCode.MAX_BOARD_SIZE, Math.max(Integer.parseInt(etSizeX.getText().toString()), 2))));
                     updateTvDifficulty();
                 } catch (Exception ignored) {
                 }
@@ -100,7 +108,7 @@ public class MenuFragment extends Fragment {
         etSizeY.addTextChangedListener(new TextWatcher() {
             public void afterTextChanged(Editable s) {
                 try {
-                    prefs.setSizeY(Math.max(4, Math.min(48, Math.max(Integer.parseInt(etSizeY.getText().toString()), 2))));
+                    prefs.setSizeY(Math.max(GameCode.MIN_BOARD_SIZE, Math.min(GameCode.MAX_BOARD_SIZE, Math.max(Integer.parseInt(etSizeY.getText().toString()), 2))));
                     updateTvDifficulty();
                 } catch (Exception ignored) {
                 }
@@ -126,11 +134,45 @@ public class MenuFragment extends Fragment {
         });
 
         cbFreeDig.setOnCheckedChangeListener((buttonView, isChecked) -> prefs.setFreeDig(isChecked));
+        cbSolvable.setOnCheckedChangeListener((buttonView, isChecked) -> prefs.setSolvable(isChecked));
+        cbEndless.setOnCheckedChangeListener((buttonView, isChecked) -> prefs.setEndless(isChecked));
 
         view.findViewById(R.id.button_play).setOnClickListener(v -> {
             prefs.save();
             NavHostFragment.findNavController(MenuFragment.this)
                     .navigate(R.id.action_MenuFragment_to_GameFragment);
         });
+
+        View btnResume = view.findViewById(R.id.button_resume);
+        btnResume.setVisibility(((MainActivity) requireActivity()).getGameJournal().hasSavedGame() ? View.VISIBLE : View.GONE);
+        btnResume.setOnClickListener(v -> {
+            prefs.setResumeSavedGame(true);
+            NavHostFragment.findNavController(MenuFragment.this)
+                    .navigate(R.id.action_MenuFragment_to_GameFragment);
+        });
+
+        EditText etGameCode = view.findViewById(R.id.fieldGameCode);
+        view.findViewById(R.id.button_play_code).setOnClickListener(v -> {
+            final GameCode code;
+            try {
+                // a shared replay starts with its game code, the moves after the slash are not needed
+                final String text = etGameCode.getText().toString();
+                final int slash = text.indexOf('/');
+                code = GameCode.decode(slash < 0 ? text : text.substring(0, slash));
+            } catch (IllegalArgumentException e) {
+                Toast.makeText(requireContext(), R.string.invalid_game_code, Toast.LENGTH_SHORT).show();
+                return;
+            }
+            prefs.setSizeX(code.getSizeX());
+            prefs.setSizeY(code.getSizeY());
+            prefs.setDifficulty(code.getDifficulty());
+            prefs.setFreeDig(code.isFreeDig());
+            prefs.setSolvable(false); // the code already names the accepted no-guess board
+            prefs.setEndless(false);
+            prefs.save();
+            prefs.setGameSeed(code.getSeed());
+            NavHostFragment.findNavController(MenuFragment.this)
+                    .navigate(R.id.action_MenuFragment_to_GameFragment);
+        });
     }
 }
\ No newline at end of file
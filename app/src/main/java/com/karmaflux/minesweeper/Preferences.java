@@ -7,6 +7,10 @@ class Preferences {
     private int sizeY;
     private float difficulty;
     private boolean freeDig = true;
+    private boolean solvable;
+    private boolean endless;
+    private Long gameSeed; // one-shot seed from an entered game code, not persisted
+    private boolean resumeSavedGame; // one-shot, not persisted
     private final SharedPreferences sharedPreferences;
 
     Preferences(SharedPreferences sharedPreferences) {
@@ -45,12 +49,57 @@ class Preferences {
         this.freeDig = freeDig;
     }
 
+    boolean isSolvable() {
+        return solvable;
+    }
+
+    void setSolvable(boolean solvable) {
+        this.solvable = solvable;
+    }
+
+    boolean isEndless() {
+        return endless;
+    }
+
+    void setEndless(boolean endless) {
+        this.endless = endless;
+    }
+
+    void setGameSeed(long gameSeed) {
+        this.gameSeed = gameSeed;
+    }
+
+    /**
+     * @return The seed of the entered game code, or null for a random game. Clears it, so only
+     * the next game replays the code.
+     */
+    Long takeGameSeed() {
+        final Long seed = gameSeed;
+        gameSeed = null;
+        return seed;
+    }
+
+    void setResumeSavedGame(boolean resumeSavedGame) {
+        this.resumeSavedGame = resumeSavedGame;
+    }
+
+    /**
+     * @return Whether the next game should continue the autosaved one. Clears the request.
+     */
+    boolean takeResumeSavedGame() {
+        final boolean resume = resumeSavedGame;
+        resumeSavedGame = false;
+        return resume;
+    }
+
     void save() {
         SharedPreferences.Editor editor = sharedPreferences.edit();
         editor.putInt("sizeX", sizeX);
         editor.putInt("sizeY", sizeY);
         editor.putFloat("difficulty", difficulty);
         editor.putBoolean("freeDig", freeDig);
+        editor.putBoolean("solvable", solvable);
+        editor.putBoolean("endless", endless);
         editor.apply();
     }
 
@@ -59,5 +108,7 @@ class Preferences {
         sizeY = sharedPreferences.getInt("sizeY", 9);
         difficulty = sharedPreferences.getFloat("difficulty", 0.15f);
         freeDig = sharedPreferences.getBoolean("freeDig", true);
+        solvable = sharedPreferences.getBoolean("solvable", false);
+        endless = sharedPreferences.getBoolean("endless", false);
     }
 }
@@ -2,22 +2,32 @@ package com.karmaflux.minesweeper;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
-import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.Typeface;
 import android.os.Bundle;
 import android.os.Parcelable;
+import android.os.SystemClock;
 import android.util.AttributeSet;
+import android.view.GestureDetector;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 
-import java.util.HashMap;
-import java.util.Map;
+import com.karmaflux.minesweeper.core.BoardCodec;
+import com.karmaflux.minesweeper.core.CellState;
+import com.karmaflux.minesweeper.core.EndlessBoard;
+import com.karmaflux.minesweeper.core.GameCode;
+import com.karmaflux.minesweeper.core.GameReplay;
+import com.karmaflux.minesweeper.core.IBoard;
+import com.karmaflux.minesweeper.core.Metrics;
+import com.karmaflux.minesweeper.core.MineBoard;
+import com.karmaflux.minesweeper.core.MineProbability;
+import com.karmaflux.minesweeper.core.MoveLog;
 
 public class SweeperGridView extends View implements View.OnLongClickListener, View.OnClickListener {
     public interface IGameOverHandler {
@@ -26,26 +36,90 @@ public class SweeperGridView extends View implements View.OnLongClickListener, V
         void Lose();
     }
 
+    public interface IStatusHandler {
+        void StatusChanged(int cellsLeft, int flagsPlaced, int bombs);
+
+        void GameCodeChanged(String gameCode);
+
+        void EndlessStatusChanged(long cellsCleared, int flagsPlaced);
+    }
+
+    // Cells smaller than this are drawn from a one pixel per cell bitmap instead of tiles
+    private static final float LOD_CELL_DP = 6f;
+    // Zooming in stops once cells reach this size
+    private static final float MAX_CELL_DP = 64f;
+    // Endless boards have no size to fit, cells start at this size
+    private static final float ENDLESS_CELL_DP = 24f;
+    // The metrics overlay text is rebuilt at most this often, not every frame it is drawn on
+    private static final long METRICS_REFRESH_MILLIS = 500;
+
     public static final int[] nearbyBombColors = new int[]{
             Color.BLUE, Color.GREEN, Color.RED, Color.CYAN, Color.MAGENTA,
             Color.YELLOW, Color.BLACK, Color.DKGRAY, Color.RED,
     };
 
-    private final Paint[] bombPaints = new Paint[nearbyBombColors.length];
-    private final Map<CellState, Bitmap> bitmaps = new HashMap<>(8);
+    private final TileAtlas tileAtlas;
+    private final TileAtlas zoomAtlas; // tiles at MAX_CELL_DP, scaled down while zoomed
     private final Paint blackPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private final Paint bgPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint hintPaint = new Paint();
+    private final Paint metricsPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint metricsBackgroundPaint = new Paint();
+    private final Paint lodPaint = new Paint(); // no filtering, cells stay crisp squares
+    private final Matrix lodMatrix = new Matrix();
+    private final RectF cellRect = new RectF();
+    private final TileBatch tileBatch = new TileBatch();
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector panDetector;
+    private final float lodCellSize;
+    private final int maxCellSize;
+    private final float endlessCellSize;
 
     private IGameOverHandler gameOverHandler;
+    private IStatusHandler statusHandler;
     private MainActivity mainActivity;
+    // The board being played. cells is the same board when it is bounded and null for an
+    // endless board, autosave, game codes, hints and the cached layers only work with it.
+    private IBoard board;
     private MineBoard cells;
-
-    private final RectF destBuffer = new RectF();
-    private final Rect srcBuffer = new Rect();
-
-    private int adjBombTextHeight = 10;
-    private float cellWidth;
-    private float cellHeight;
+    private EndlessBoard endlessBoard;
+    private boolean centerOnStart;
+    private MineProbability mineProbability;
+    private String gameCode;
+    private boolean freeDig;
+    // Every move since the start, replayable with GameReplay. Null for a resumed autosave,
+    // whose earlier moves are not known.
+    private MoveLog moveLog;
+    private long gameStartMillis;
+
+    // Cached rendering of the whole board, only changed cells are redrawn into it
+    private Bitmap boardLayer;
+    private Canvas boardLayerCanvas;
+    // Level of detail fallback for small cells, one pixel per cell in its tile's average colour
+    private Bitmap lodBitmap;
+
+    // Cell size with the whole board in view, whole pixels unless the board has more cells than pixels
+    private float baseCellWidth;
+    private float baseCellHeight;
+    private int cellWidth;
+    private int cellHeight;
+    // Screen position of the board is pan + cell * base cell size * zoom
+    private float zoom = 1f;
+    private float maxZoom = 1f;
+    private float panX;
+    private float panY;
+    private int firstVisibleX;
+    private int firstVisibleY;
+    private int lastVisibleX;
+    private int lastVisibleY;
+    // Zoomed cells go through tileBatch in one draw call where the canvas supports it
+    private boolean batchedRendering = true;
+    private boolean atlasRendering = true;
+    private boolean lastFrameBatched;
+    private boolean showMetrics;
+    private String[] metricsLines; // null until the overlay is next drawn
+    private float metricsWidth;
+    private long metricsRefreshedMillis;
+    private boolean gestureMoved; // the current touch panned or zoomed, so it is not a tap
     private float touchX;
     private float touchY;
 
@@ -53,7 +127,23 @@ public class SweeperGridView extends View implements View.OnLongClickListener, V
     public Parcelable onSaveInstanceState() {
         Bundle bundle = new Bundle();
         bundle.putParcelable("superState", super.onSaveInstanceState());
-        bundle.putSerializable("cells", cells);
+        if (board == null) {
+            return bundle; // still generating, the generator hands the board to the new view
+        }
+        if (endlessBoard != null) {
+            bundle.putByteArray("endless", endlessBoard.encode());
+        } else {
+            bundle.putByteArray("board", BoardCodec.encode(cells));
+        }
+        bundle.putString("gameCode", gameCode);
+        bundle.putBoolean("freeDig", freeDig);
+        if (moveLog != null) {
+            bundle.putLongArray("moves", moveLog.toArray());
+        }
+        bundle.putLong("elapsedMillis", SystemClock.uptimeMillis() - gameStartMillis);
+        bundle.putFloat("zoom", zoom);
+        bundle.putFloat("panX", panX);
+        bundle.putFloat("panY", panY);
 
         return bundle;
     }
@@ -62,9 +152,12 @@ public class SweeperGridView extends View implements View.OnLongClickListener, V
     public void onRestoreInstanceState(Parcelable state) {
         if (state instanceof Bundle) {
             Bundle bundle = (Bundle) state;
-            cells = (MineBoard) bundle.getSerializable("cells");
-
             state = bundle.getParcelable("superState");
+            // none if saved while generating. Decoding regenerates the board, so it is done by
+            // the generator and the game comes back through startGame() with this bundle.
+            if (bundle.containsKey("endless") || bundle.containsKey("board")) {
+                mainActivity.getBoardGenerator().restore(bundle);
+            }
         }
         super.onRestoreInstanceState(state);
     }
@@ -77,22 +170,39 @@ public class SweeperGridView extends View implements View.OnLongClickListener, V
         super(context, attrs);
 
         blackPaint.setStyle(Paint.Style.FILL_AND_STROKE);
-
-        bgPaint.setColor(Color.GRAY);
-        bgPaint.setStyle(Paint.Style.FILL_AND_STROKE);
-
-        Resources res = getResources();
-        bitmaps.put(CellState.COVERED, BitmapFactory.decodeResource(res, R.drawable.tile));
-        bitmaps.put(CellState.COVERED_BOMB, BitmapFactory.decodeResource(res, R.drawable.tile));
-        bitmaps.put(CellState.UNCOVERED, BitmapFactory.decodeResource(res, R.drawable.tile_empty));
-        bitmaps.put(CellState.BOMB, BitmapFactory.decodeResource(res, R.drawable.bomb));
-        bitmaps.put(CellState.FLAGGED, BitmapFactory.decodeResource(res, R.drawable.flag));
-        bitmaps.put(CellState.FLAGGED_BOMB, BitmapFactory.decodeResource(res, R.drawable.flag));
-
-        for (int i = 0; i < nearbyBombColors.length; i++) {
-            bombPaints[i] = new Paint(Paint.ANTI_ALIAS_FLAG);
-            bombPaints[i].setColor(nearbyBombColors[i]);
-        }
+        metricsPaint.setColor(Color.WHITE);
+        metricsPaint.setTypeface(Typeface.MONOSPACE);
+        metricsPaint.setTextSize(10f * getResources().getDisplayMetrics().scaledDensity);
+        metricsBackgroundPaint.setColor(Color.argb(192, 0, 0, 0));
+
+        tileAtlas = new TileAtlas(getResources());
+        zoomAtlas = new TileAtlas(getResources());
+        final float density = getResources().getDisplayMetrics().density;
+        lodCellSize = LOD_CELL_DP * density;
+        maxCellSize = Math.round(MAX_CELL_DP * density);
+        endlessCellSize = ENDLESS_CELL_DP * density;
+
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoomBy(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
+        panDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                if (zoom > 1f || endlessBoard != null) {
+                    gestureMoved = true;
+                    cancelLongPress();
+                    panX -= distanceX;
+                    panY -= distanceY;
+                    clampPan();
+                    invalidate();
+                }
+                return true;
+            }
+        });
 
         this.setLongClickable(true);
         this.setClickable(true);
@@ -102,46 +212,175 @@ public class SweeperGridView extends View implements View.OnLongClickListener, V
 
     @Override
     public void onClick(View v) {
-        if (isOutOfBounds(touchX, touchY)) {
+        if (gestureMoved || isOutOfBounds(touchX, touchY)) {
             return;
         }
-        int column = (int) (touchX / cellWidth);
-        int row = (int) (touchY / cellHeight);
-        dig(column, row);
+        dig(cellAtX(touchX), cellAtY(touchY));
     }
 
-    public void setup(MainActivity mainActivity, IGameOverHandler gameOverHandler) {
+    public void setup(MainActivity mainActivity, IGameOverHandler gameOverHandler, IStatusHandler statusHandler) {
         this.mainActivity = mainActivity;
         this.gameOverHandler = gameOverHandler;
-        Preferences preferences = mainActivity.getPreferences();
-        cells = new MineBoard(preferences.getSizeX(), preferences.getSizeY(), preferences.getDifficulty());
-        calculateDimensions();
-        if (preferences.isFreeDig()) {
-            cells.freeDig();
+        this.statusHandler = statusHandler;
+    }
+
+    /**
+     * Starts playing a board made by the BoardGenerator, or carries on with one restored
+     * from this view's saved state
+     */
+    public void startGame(BoardGenerator.NewGame game) {
+        setBoard(game.board);
+        freeDig = game.freeDig;
+        final Bundle saved = game.viewState;
+        if (saved != null) {
+            gameCode = saved.getString("gameCode");
+            final long[] moves = saved.getLongArray("moves");
+            moveLog = moves != null ? MoveLog.fromArray(moves) : null;
+            gameStartMillis = SystemClock.uptimeMillis() - saved.getLong("elapsedMillis");
+            centerOnStart = false;
+            zoom = saved.getFloat("zoom", 1f);
+            panX = saved.getFloat("panX");
+            panY = saved.getFloat("panY");
+        } else {
+            gameCode = cells != null ? GameCode.of(cells, freeDig).encode() : null;
+            moveLog = cells != null && !game.resumed ? new MoveLog() : null;
+            gameStartMillis = SystemClock.uptimeMillis();
+            centerOnStart = endlessBoard != null;
+            zoom = 1f;
+            panX = 0f;
+            panY = 0f;
+        }
+        calculateDimensions(); // a restored board need not be the size the view was laid out for
+        if (cells != null) {
+            mainActivity.getGameJournal().start(cells, freeDig); // a restored one may have moved on since the save
+        }
+        if (saved == null) {
             checkVictoryCondition(); // edgecase with very low difficulty, first dig wins the game
         }
+        updateStatus();
+        updateHints();
+        invalidate();
+    }
+
+    /**
+     * @return Whether a board is in play, false while the first one is still being generated
+     */
+    public boolean hasBoard() {
+        return board != null;
+    }
+
+    private void setBoard(IBoard board) {
+        this.board = board;
+        this.cells = board instanceof MineBoard ? (MineBoard) board : null;
+        this.endlessBoard = board instanceof EndlessBoard ? (EndlessBoard) board : null;
+    }
+
+    public boolean isEndless() {
+        return endlessBoard != null;
+    }
+
+    /**
+     * Shades covered cells by the probability that they hold a mine
+     */
+    public void setShowHints(boolean showHints) {
+        mineProbability = showHints ? new MineProbability() : null;
+        updateHints();
+        invalidate();
     }
 
     @Override
     public boolean onLongClick(View v) {
-        if (isOutOfBounds(touchX, touchY)) {
+        if (gestureMoved || isOutOfBounds(touchX, touchY)) {
             return false;
         }
-        int x = (int) (touchX / cellWidth);
-        int y = (int) (touchY / cellHeight);
-        cells.flag(x, y);
-        invalidate();
+        final int x = cellAtX(touchX);
+        final int y = cellAtY(touchY);
+        board.flag(x, y);
+        if (board.getChangedCount() == 0) {
+            return true; // an uncovered cell, nothing to journal, replay or redraw
+        }
+        if (cells != null) {
+            mainActivity.getGameJournal().recordFlag(x, y);
+            recordMove(MoveLog.FLAG, x, y);
+        }
+        updateStatus();
+        redrawChangedCells();
+        updateHints();
         return true;
     }
 
     boolean isOutOfBounds(float touchX, float touchY) {
-        int x = (int) (touchX / cellWidth);
-        int y = (int) (touchY / cellHeight);
-        return (x < 0 || y < 0 && x >= cells.getSizeX() && y >= cells.getSizeY());
+        if (board == null || baseCellWidth <= 0f || baseCellHeight <= 0f) {
+            return true;
+        }
+        if (cells == null) {
+            return false; // endless
+        }
+        final int x = cellAtX(touchX);
+        final int y = cellAtY(touchY);
+        // cells are whole pixels, so taps can land in the spare margin past the last cell
+        return x < 0 || y < 0 || x >= cells.getSizeX() || y >= cells.getSizeY();
+    }
+
+    private int cellAtX(float touchX) {
+        return (int) Math.floor((touchX - panX) / (baseCellWidth * zoom));
     }
 
+    private int cellAtY(float touchY) {
+        return (int) Math.floor((touchY - panY) / (baseCellHeight * zoom));
+    }
+
+    /**
+     * Zooms by the factor around the focus point, keeping the board point under it in place
+     */
+    private void zoomBy(float factor, float focusX, float focusY) {
+        final float newZoom = Math.max(1f, Math.min(maxZoom, zoom * factor));
+        if (newZoom == zoom) {
+            return;
+        }
+        gestureMoved = true;
+        cancelLongPress();
+        panX = focusX - (focusX - panX) * newZoom / zoom;
+        panY = focusY - (focusY - panY) * newZoom / zoom;
+        zoom = newZoom;
+        clampPan();
+        invalidate();
+    }
+
+    // Keeps the board covering the view, fully zoomed out it sits at the origin
+    private void clampPan() {
+        if (cells == null) {
+            return; // endless, pans anywhere
+        }
+        final float boardWidth = cells.getSizeX() * baseCellWidth * zoom;
+        final float boardHeight = cells.getSizeY() * baseCellHeight * zoom;
+        panX = Math.max(Math.min(0f, getWidth() - boardWidth), Math.min(0f, panX));
+        panY = Math.max(Math.min(0f, getHeight() - boardHeight), Math.min(0f, panY));
+    }
+
+    /**
+     * Digs a covered cell, or chords a tapped number: its covered neighbours are dug as one
+     * board operation, so there is one redraw, one win check and one sound for all of them
+     */
     public void dig(int x, int y) {
-        if (cells.dig(x, y)) { // dig returns true if hit a bomb
+        final boolean chord = board.getCellState(x, y) == CellState.UNCOVERED;
+        final boolean hitBomb = chord ? board.chord(x, y) : board.dig(x, y); // both return true if hit a bomb
+        if (board.getChangedCount() == 0) {
+            return; // flagged, or a number without enough flags around it
+        }
+        if (cells != null) {
+            if (chord) {
+                mainActivity.getGameJournal().recordChord(x, y);
+                recordMove(MoveLog.CHORD, x, y);
+            } else {
+                mainActivity.getGameJournal().recordDig(x, y);
+                recordMove(MoveLog.DIG, x, y);
+            }
+        }
+        if (hitBomb) {
+            if (cells != null) {
+                mainActivity.getGameJournal().clear();
+            }
             mainActivity.playExplosionSound();
             gameOverHandler.Lose();
         } else {
@@ -149,11 +388,51 @@ public class SweeperGridView extends View implements View.OnLongClickListener, V
             checkVictoryCondition();
         }
 
-        invalidate();
+        updateStatus();
+        redrawChangedCells();
+        updateHints();
+    }
+
+    private void recordMove(int action, int x, int y) {
+        if (moveLog != null) {
+            moveLog.add(SystemClock.uptimeMillis() - gameStartMillis, action, y * cells.getSizeX() + x);
+        }
+    }
+
+    /**
+     * @return The game code and every move so far as text GameReplay.decode() reads back,
+     * or null if the moves are not known
+     */
+    public String getReplay() {
+        return moveLog != null && gameCode != null ? GameReplay.encode(GameCode.decode(gameCode), moveLog) : null;
+    }
+
+    public String getGameCode() {
+        return gameCode;
+    }
+
+    private void updateHints() {
+        if (mineProbability != null && cells != null) {
+            mineProbability.update(cells);
+            invalidate(); // every frontier cell may change, the overlay is drawn each frame
+        }
+    }
+
+    private void updateStatus() {
+        if (statusHandler == null) {
+            return;
+        }
+        if (cells != null) {
+            statusHandler.StatusChanged(cells.getRemainingSafeCells(), cells.getFlagCount(), cells.getNumBombs());
+        } else if (endlessBoard != null) {
+            statusHandler.EndlessStatusChanged(endlessBoard.getUncoveredCount(), endlessBoard.getFlagCount());
+        }
+        statusHandler.GameCodeChanged(gameCode);
     }
 
     private void checkVictoryCondition() {
-        if (cells.checkWin()) {
+        if (board.checkWin()) {
+            mainActivity.getGameJournal().clear();
             mainActivity.playWinSound();
             gameOverHandler.Win();
         }
@@ -166,67 +445,345 @@ public class SweeperGridView extends View implements View.OnLongClickListener, V
     }
 
     private void calculateDimensions() {
-        cellWidth = (float) getWidth() / cells.getSizeX();
-        cellHeight = (float) getHeight() / cells.getSizeY();
+        if (board == null || getWidth() == 0 || getHeight() == 0) {
+            return;
+        }
+        if (cells == null) {
+            calculateEndlessDimensions();
+            return;
+        }
+        final float fitWidth = (float) getWidth() / cells.getSizeX();
+        final float fitHeight = (float) getHeight() / cells.getSizeY();
+        baseCellWidth = fitWidth >= 1f ? (float) Math.floor(fitWidth) : fitWidth;
+        baseCellHeight = fitHeight >= 1f ? (float) Math.floor(fitHeight) : fitHeight;
+        cellWidth = (int) baseCellWidth;
+        cellHeight = (int) baseCellHeight;
+        maxZoom = Math.max(1f, maxCellSize / Math.min(baseCellWidth, baseCellHeight));
+        zoom = Math.min(zoom, maxZoom);
+        clampPan();
+        zoomAtlas.rebuild(maxCellSize, maxCellSize);
+
+        // Boards with big enough cells keep the whole board in a cached layer for the
+        // zoomed out view, the rest get the one pixel per cell bitmap
+        final boolean layered = Math.min(cellWidth, cellHeight) >= lodCellSize;
+        if (layered) {
+            tileAtlas.rebuild(cellWidth, cellHeight);
+            if (boardLayer == null || boardLayer.getWidth() != getWidth() || boardLayer.getHeight() != getHeight()) {
+                recycleBoardLayer();
+                boardLayer = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+                boardLayerCanvas = new Canvas(boardLayer);
+            }
+            recycleLodBitmap();
+        } else {
+            recycleBoardLayer();
+            if (lodBitmap == null || lodBitmap.getWidth() != cells.getSizeX() || lodBitmap.getHeight() != cells.getSizeY()) {
+                recycleLodBitmap();
+                lodBitmap = Bitmap.createBitmap(cells.getSizeX(), cells.getSizeY(), Bitmap.Config.ARGB_8888);
+            }
+        }
+        redrawBoardLayer();
+    }
+
+    // Endless boards are always drawn per visible cell, never from the cached layers
+    private void calculateEndlessDimensions() {
+        baseCellWidth = endlessCellSize;
+        baseCellHeight = endlessCellSize;
+        maxZoom = Math.max(1f, maxCellSize / endlessCellSize);
+        zoom = Math.min(zoom, maxZoom);
+        zoomAtlas.rebuild(maxCellSize, maxCellSize);
+        recycleBoardLayer();
+        recycleLodBitmap();
+        if (centerOnStart) { // the free dig is in the middle of chunk (0, 0)
+            panX = getWidth() / 2f - EndlessBoard.CHUNK_SIZE / 2f * baseCellWidth;
+            panY = getHeight() / 2f - EndlessBoard.CHUNK_SIZE / 2f * baseCellHeight;
+            centerOnStart = false;
+        }
+        invalidate();
+    }
+
+    private void recycleBoardLayer() {
+        if (boardLayer != null) {
+            boardLayer.recycle();
+            boardLayer = null;
+            boardLayerCanvas = null;
+        }
+    }
+
+    private void recycleLodBitmap() {
+        if (lodBitmap != null) {
+            lodBitmap.recycle();
+            lodBitmap = null;
+        }
+    }
+
+    private void redrawBoardLayer() {
+        if (lodBitmap != null && cells != null) {
+            redrawLodBitmap();
+        }
+        if (boardLayerCanvas == null || cells == null || tileAtlas.getBitmap() == null) {
+            invalidate();
+            return;
+        }
 
-        for (Paint bombPaint : bombPaints) {
-            adjBombTextHeight = setTextSizeForWidth(bombPaint, Math.min(cellWidth, cellHeight) / 2);
+        boardLayerCanvas.drawColor(Color.WHITE);
+        for (int x = 0; x < cells.getSizeX(); x++) {
+            for (int y = 0; y < cells.getSizeY(); y++) {
+                drawCell(boardLayerCanvas, x, y);
+            }
         }
 
+        final int boardWidth = cells.getSizeX() * cellWidth;
+        final int boardHeight = cells.getSizeY() * cellHeight;
+        for (int x = 1; x < cells.getSizeX(); x++)
+            boardLayerCanvas.drawLine(x * cellWidth, 0f, x * cellWidth, boardHeight, blackPaint);
+        for (int y = 1; y < cells.getSizeY(); y++)
+            boardLayerCanvas.drawLine(0f, y * cellHeight, boardWidth, y * cellHeight, blackPaint);
+
         invalidate();
     }
 
-    //https://stackoverflow.com/questions/12166476/android-canvas-drawtext-set-font-size-from-width
-    private static int setTextSizeForWidth(Paint paint, float desiredWidth) {
-        String str = "9";
-        int size = 0;
+    private void redrawLodBitmap() {
+        final int sizeX = cells.getSizeX();
+        final int[] row = new int[sizeX];
+        for (int y = 0; y < cells.getSizeY(); y++) {
+            for (int x = 0; x < sizeX; x++) {
+                row[x] = zoomAtlas.getAverageColor(TileAtlas.tileFor(cells.getCellState(x, y), cells.getAdjacentBombs(x, y)));
+            }
+            lodBitmap.setPixels(row, 0, sizeX, 0, y, sizeX, 1);
+        }
+    }
 
-        do {
-            paint.setTextSize(++size);
-        } while (paint.measureText(str) < desiredWidth);
+    /**
+     * Redraws the cells changed by the last board operation into the cached layer
+     * and invalidates the view once
+     */
+    private void redrawChangedCells() {
+        if (board.getChangedCount() == 0) {
+            return;
+        }
+        if (lodBitmap != null) {
+            for (int i = 0; i < cells.getChangedCount(); i++) {
+                final int x = cells.getChangedX(i);
+                final int y = cells.getChangedY(i);
+                lodBitmap.setPixel(x, y, zoomAtlas.getAverageColor(
+                        TileAtlas.tileFor(cells.getCellState(x, y), cells.getAdjacentBombs(x, y))));
+            }
+        }
+        if (boardLayerCanvas == null || tileAtlas.getBitmap() == null) {
+            invalidate(); // drawn straight from the board every frame, only the visible cells
+            return;
+        }
 
-        paint.setTextSize(size);
-        paint.setTextAlign(Paint.Align.CENTER);
-        Rect bounds = new Rect();
-        paint.getTextBounds(str, 0, str.length(), bounds);
-        return bounds.height();
+        for (int i = 0; i < cells.getChangedCount(); i++) {
+            final int x = cells.getChangedX(i);
+            final int y = cells.getChangedY(i);
+            drawCell(boardLayerCanvas, x, y);
+            drawCellGridLines(boardLayerCanvas, x, y);
+        }
+        // dirty rects are ignored by hardware rendering since API 21, invalidate(l, t, r, b) is deprecated
+        invalidate();
+    }
+
+    private void drawCell(Canvas canvas, int x, int y) {
+        final int tile = TileAtlas.tileFor(cells.getCellState(x, y), cells.getAdjacentBombs(x, y));
+        tileAtlas.draw(canvas, tile, x * cellWidth, y * cellHeight);
+    }
+
+    // Restores the grid lines around a single redrawn cell, outer board edges have none
+    private void drawCellGridLines(Canvas canvas, int x, int y) {
+        final int left = x * cellWidth;
+        final int top = y * cellHeight;
+        final int right = (x + 1) * cellWidth;
+        final int bottom = (y + 1) * cellHeight;
+        if (x > 0)
+            canvas.drawLine(left, top, left, bottom, blackPaint);
+        if (x < cells.getSizeX() - 1)
+            canvas.drawLine(right, top, right, bottom, blackPaint);
+        if (y > 0)
+            canvas.drawLine(left, top, right, top, blackPaint);
+        if (y < cells.getSizeY() - 1)
+            canvas.drawLine(left, bottom, right, bottom, blackPaint);
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
-        canvas.drawColor(Color.WHITE);
+        if (board == null || baseCellWidth <= 0f || baseCellHeight <= 0f) {
+            return;
+        }
+        final long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+        int cellsDrawn = 0;
+        final float width = baseCellWidth * zoom;
+        final float height = baseCellHeight * zoom;
+        firstVisibleX = (int) Math.floor(-panX / width);
+        firstVisibleY = (int) Math.floor(-panY / height);
+        lastVisibleX = (int) Math.floor((getWidth() - panX) / width);
+        lastVisibleY = (int) Math.floor((getHeight() - panY) / height);
+        if (cells != null) {
+            firstVisibleX = Math.max(0, firstVisibleX);
+            firstVisibleY = Math.max(0, firstVisibleY);
+            lastVisibleX = Math.min(cells.getSizeX() - 1, lastVisibleX);
+            lastVisibleY = Math.min(cells.getSizeY() - 1, lastVisibleY);
+        }
 
-        for (int x = 0; x < cells.getSizeX(); x++) {
-            for (int y = 0; y < cells.getSizeY(); y++) {
-                destBuffer.set(x * cellWidth, y * cellHeight,
-                        (x + 1) * cellWidth, (y + 1) * cellHeight);
-
-                canvas.drawRect(destBuffer, bgPaint);
-
-                if (cells.getCellState(x, y) == CellState.UNCOVERED) {
-                    final int adjacentBombs = cells.getAdjacentBombs(x, y);
-                    if (adjacentBombs != 0) {
-                        canvas.drawText(String.valueOf(adjacentBombs),
-                                destBuffer.left + cellWidth / 2f,
-                                destBuffer.top + cellHeight / 2f + adjBombTextHeight / 2f,
-                                bombPaints[adjacentBombs]);
-                    }
-                } else {
-                    final CellState cellState = cells.getCellState(x, y);
-                    final Bitmap d = bitmaps.get(cellState);
-                    if (d != null) {
-                        srcBuffer.set(0, 0, d.getWidth(), d.getHeight());
+        if (zoom == 1f && boardLayer != null) {
+            canvas.drawBitmap(boardLayer, 0f, 0f, null);
+        } else if (lodBitmap != null && Math.min(width, height) < lodCellSize) {
+            lodMatrix.setScale(width, height);
+            lodMatrix.postTranslate(panX, panY);
+            canvas.drawBitmap(lodBitmap, lodMatrix, lodPaint);
+        } else {
+            cellsDrawn = drawVisibleCells(canvas, width, height);
+        }
+        if (mineProbability != null && cells != null) {
+            drawHints(canvas, width, height);
+        }
+        if (Metrics.isEnabled()) {
+            // time spent recording the frame on the UI thread, rendering happens after
+            Metrics.FRAME_NANOS.record(System.nanoTime() - start);
+            Metrics.FRAME_CELLS_DRAWN.record(cellsDrawn);
+        }
+        if (showMetrics) {
+            drawMetrics(canvas);
+        }
+    }
+
+    private void drawMetrics(Canvas canvas) {
+        final long now = SystemClock.uptimeMillis();
+        if (metricsLines == null || now - metricsRefreshedMillis >= METRICS_REFRESH_MILLIS) {
+            metricsRefreshedMillis = now;
+            metricsLines = Metrics.dump().split("\n");
+            metricsWidth = 0f;
+            for (String line : metricsLines) {
+                metricsWidth = Math.max(metricsWidth, metricsPaint.measureText(line));
+            }
+        }
+        final float lineHeight = metricsPaint.getFontSpacing();
+        canvas.drawRect(0f, 0f, metricsWidth + lineHeight, (metricsLines.length + 0.5f) * lineHeight,
+                metricsBackgroundPaint);
+        for (int i = 0; i < metricsLines.length; i++) {
+            canvas.drawText(metricsLines[i], lineHeight / 2f, (i + 1) * lineHeight, metricsPaint);
+        }
+    }
+
+    /**
+     * Overlays the hot path metrics on the board, they are only recorded while Metrics is enabled
+     */
+    public void setShowMetrics(boolean showMetrics) {
+        this.showMetrics = showMetrics;
+        metricsLines = null;
+        invalidate();
+    }
 
-                        canvas.drawBitmap(d, srcBuffer, destBuffer, null);
+    /**
+     * Draws only the cells intersecting the view, scaled from the zoom atlas
+     *
+     * @return Number of cells drawn
+     */
+    private int drawVisibleCells(Canvas canvas, float width, float height) {
+        canvas.drawColor(Color.WHITE);
+        lastFrameBatched = atlasRendering && batchedRendering && TileBatch.isSupported(canvas);
+        if (lastFrameBatched) {
+            tileBatch.begin(zoomAtlas);
+        }
+        for (int y = firstVisibleY; y <= lastVisibleY; y++) {
+            for (int x = firstVisibleX; x <= lastVisibleX; x++) {
+                final int tile = TileAtlas.tileFor(board.getCellState(x, y), board.getAdjacentBombs(x, y));
+                final float left = panX + x * width;
+                final float top = panY + y * height;
+                if (lastFrameBatched) {
+                    tileBatch.addTile(tile, left, top, left + width, top + height);
+                } else {
+                    cellRect.set(left, top, left + width, top + height);
+                    if (atlasRendering) {
+                        zoomAtlas.draw(canvas, tile, cellRect);
+                    } else {
+                        zoomAtlas.drawUncached(canvas, tile, cellRect);
                     }
                 }
             }
         }
 
-        for (int x = 1; x < cells.getSizeX(); x++)
-            canvas.drawLine(x * cellWidth, 0f, x * cellWidth, getHeight(), blackPaint);
-        for (int y = 1; y < cells.getSizeY(); y++)
-            canvas.drawLine(0f, y * cellHeight, getWidth(), y * cellHeight, blackPaint);
+        final float top = panY + firstVisibleY * height;
+        final float bottom = panY + (lastVisibleY + 1) * height;
+        final float left = panX + firstVisibleX * width;
+        final float right = panX + (lastVisibleX + 1) * width;
+        // bounded boards have no lines on their outer edges
+        final int firstLineX = cells != null ? Math.max(1, firstVisibleX) : firstVisibleX;
+        final int firstLineY = cells != null ? Math.max(1, firstVisibleY) : firstVisibleY;
+        for (int x = firstLineX; x <= lastVisibleX; x++) {
+            if (lastFrameBatched) {
+                tileBatch.addLine(panX + x * width, top, panX + x * width, bottom);
+            } else {
+                canvas.drawLine(panX + x * width, top, panX + x * width, bottom, blackPaint);
+            }
+        }
+        for (int y = firstLineY; y <= lastVisibleY; y++) {
+            if (lastFrameBatched) {
+                tileBatch.addLine(left, panY + y * height, right, panY + y * height);
+            } else {
+                canvas.drawLine(left, panY + y * height, right, panY + y * height, blackPaint);
+            }
+        }
+        if (lastFrameBatched) {
+            tileBatch.draw(canvas, blackPaint);
+        }
+        return (lastVisibleX - firstVisibleX + 1) * (lastVisibleY - firstVisibleY + 1);
+    }
+
+    /**
+     * Switches zoomed cells between one batched draw call per frame and one call per cell,
+     * for comparing the two. Batching is on by default and skipped where the canvas cannot do it.
+     */
+    public void setBatchedRendering(boolean batchedRendering) {
+        this.batchedRendering = batchedRendering;
+        invalidate();
+    }
+
+    public boolean isBatchedRendering() {
+        return batchedRendering;
+    }
+
+    /**
+     * Switches zoomed cells between atlas tiles and the source bitmaps and text scaled per
+     * cell, for comparing the two. Turning the atlas off also turns batching off.
+     */
+    public void setAtlasRendering(boolean atlasRendering) {
+        this.atlasRendering = atlasRendering;
+        invalidate();
+    }
+
+    public boolean isAtlasRendering() {
+        return atlasRendering;
+    }
+
+    /**
+     * @return Which path drew the cells in the last frame, for frame timing
+     */
+    public String getRendererName() {
+        if (zoom == 1f && boardLayer != null) {
+            return "layer";
+        } else if (lodBitmap != null && Math.min(baseCellWidth, baseCellHeight) * zoom < lodCellSize) {
+            return "lod";
+        }
+        if (!atlasRendering) {
+            return "scaled";
+        }
+        return lastFrameBatched ? "batched" : "per-cell";
+    }
+
+    private void drawHints(Canvas canvas, float width, float height) {
+        for (int y = firstVisibleY; y <= lastVisibleY; y++) {
+            for (int x = firstVisibleX; x <= lastVisibleX; x++) {
+                final CellState state = cells.getCellState(x, y);
+                if (state != CellState.COVERED && state != CellState.COVERED_BOMB) {
+                    continue;
+                }
+                final float p = mineProbability.getProbability(x, y);
+                hintPaint.setColor(Color.argb(128, (int) (255 * p), (int) (255 * (1 - p)), 0));
+                canvas.drawRect(panX + x * width, panY + y * height,
+                        panX + (x + 1) * width, panY + (y + 1) * height, hintPaint);
+            }
+        }
     }
 
     @Override
@@ -250,6 +807,16 @@ public class SweeperGridView extends View implements View.OnLongClickListener, V
     public boolean onTouchEvent(MotionEvent event) {
         this.touchX = event.getX();
         this.touchY = event.getY();
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            gestureMoved = false;
+        } else if (event.getActionMasked() == MotionEvent.ACTION_POINTER_DOWN) {
+            gestureMoved = true; // a second finger means a pinch, never a tap
+            cancelLongPress();
+        }
+        scaleDetector.onTouchEvent(event);
+        if (!scaleDetector.isInProgress()) {
+            panDetector.onTouchEvent(event);
+        }
 
         return super.onTouchEvent(event);
     }
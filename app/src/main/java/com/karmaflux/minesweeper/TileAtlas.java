@@ -0,0 +1,201 @@
+package com.karmaflux.minesweeper;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.karmaflux.minesweeper.core.CellState;
+
+/**
+ * Every tile the board can show, pre-rendered side by side at the current cell size,
+ * so drawing a cell is a 1:1 blit with no scaling, text layout or allocation
+ */
+class TileAtlas {
+    static final int TILE_COVERED = 0;
+    static final int TILE_FLAGGED = 1;
+    static final int TILE_BOMB = 2;
+    static final int TILE_EMPTY = 3; // TILE_EMPTY + n is the uncovered tile with n adjacent bombs
+    static final int TILE_COUNT = TILE_EMPTY + 9;
+
+    private final Bitmap tileBitmap;
+    private final Bitmap flagBitmap;
+    private final Bitmap bombBitmap;
+    private final Paint bgPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint[] bombPaints = new Paint[SweeperGridView.nearbyBombColors.length];
+
+    private final Rect srcBuffer = new Rect();
+    private final Rect destBuffer = new Rect();
+    private final int[] averageColors = new int[TILE_COUNT];
+
+    private Bitmap atlas;
+    private int tileWidth;
+    private int tileHeight;
+    private int textHeight;
+
+    TileAtlas(Resources res) {
+        tileBitmap = BitmapFactory.decodeResource(res, R.drawable.tile);
+        flagBitmap = BitmapFactory.decodeResource(res, R.drawable.flag);
+        bombBitmap = BitmapFactory.decodeResource(res, R.drawable.bomb);
+
+        bgPaint.setColor(Color.GRAY);
+        bgPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+
+        for (int i = 0; i < bombPaints.length; i++) {
+            bombPaints[i] = new Paint(Paint.ANTI_ALIAS_FLAG);
+            bombPaints[i].setColor(SweeperGridView.nearbyBombColors[i]);
+            bombPaints[i].setTextAlign(Paint.Align.CENTER);
+        }
+    }
+
+    static int tileFor(CellState state, int adjacentBombs) {
+        switch (state) {
+            case FLAGGED:
+            case FLAGGED_BOMB:
+                return TILE_FLAGGED;
+            case BOMB:
+                return TILE_BOMB;
+            case UNCOVERED:
+                return TILE_EMPTY + adjacentBombs;
+            default:
+                return TILE_COVERED;
+        }
+    }
+
+    int getTileWidth() {
+        return tileWidth;
+    }
+
+    int getTileHeight() {
+        return tileHeight;
+    }
+
+    Bitmap getBitmap() {
+        return atlas;
+    }
+
+    /**
+     * @return The tile shrunk to a single pixel, for drawing cells too small for their tile
+     */
+    int getAverageColor(int tile) {
+        return averageColors[tile];
+    }
+
+    /**
+     * Renders all tiles at the given size, does nothing if the size did not change
+     */
+    void rebuild(int tileWidth, int tileHeight) {
+        if (tileWidth <= 0 || tileHeight <= 0
+                || (atlas != null && tileWidth == this.tileWidth && tileHeight == this.tileHeight)) {
+            return;
+        }
+        if (atlas != null) {
+            atlas.recycle();
+        }
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        atlas = Bitmap.createBitmap(tileWidth * TILE_COUNT, tileHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(atlas);
+
+        textHeight = setTextSizeForWidth(bombPaints, Math.min(tileWidth, tileHeight) / 2f);
+        for (int tile = 0; tile < TILE_COUNT; tile++) {
+            final int left = tile * tileWidth;
+            destBuffer.set(left, 0, left + tileWidth, tileHeight);
+            canvas.drawRect(destBuffer, bgPaint);
+
+            if (tile == TILE_COVERED) {
+                drawScaled(canvas, tileBitmap);
+            } else if (tile == TILE_FLAGGED) {
+                drawScaled(canvas, flagBitmap);
+            } else if (tile == TILE_BOMB) {
+                drawScaled(canvas, bombBitmap);
+            } else if (tile > TILE_EMPTY) {
+                final int adjacentBombs = tile - TILE_EMPTY;
+                canvas.drawText(String.valueOf(adjacentBombs),
+                        left + tileWidth / 2f,
+                        tileHeight / 2f + textHeight / 2f,
+                        bombPaints[adjacentBombs]);
+            }
+        }
+
+        final int[] pixels = new int[tileWidth * tileHeight];
+        for (int tile = 0; tile < TILE_COUNT; tile++) {
+            atlas.getPixels(pixels, 0, tileWidth, tile * tileWidth, 0, tileWidth, tileHeight);
+            long red = 0;
+            long green = 0;
+            long blue = 0;
+            for (int pixel : pixels) {
+                red += Color.red(pixel);
+                green += Color.green(pixel);
+                blue += Color.blue(pixel);
+            }
+            averageColors[tile] = Color.rgb((int) (red / pixels.length), (int) (green / pixels.length),
+                    (int) (blue / pixels.length));
+        }
+    }
+
+    /**
+     * Draws a tile the way cells were drawn before the atlas, scaling the source bitmap or
+     * laying out the number as text every time. Only for comparing frame times with the atlas.
+     */
+    void drawUncached(Canvas canvas, int tile, RectF dest) {
+        canvas.drawRect(dest, bgPaint);
+        if (tile == TILE_COVERED) {
+            canvas.drawBitmap(tileBitmap, null, dest, null);
+        } else if (tile == TILE_FLAGGED) {
+            canvas.drawBitmap(flagBitmap, null, dest, null);
+        } else if (tile == TILE_BOMB) {
+            canvas.drawBitmap(bombBitmap, null, dest, null);
+        } else if (tile > TILE_EMPTY) {
+            final Paint paint = bombPaints[tile - TILE_EMPTY];
+            final float textSize = paint.getTextSize();
+            final float scale = dest.height() / tileHeight;
+            paint.setTextSize(textSize * scale);
+            canvas.drawText(String.valueOf(tile - TILE_EMPTY), dest.centerX(),
+                    dest.centerY() + textHeight * scale / 2f, paint);
+            paint.setTextSize(textSize);
+        }
+    }
+
+    private void drawScaled(Canvas canvas, Bitmap bitmap) {
+        srcBuffer.set(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        canvas.drawBitmap(bitmap, srcBuffer, destBuffer, bitmapPaint);
+    }
+
+    void draw(Canvas canvas, int tile, int left, int top) {
+        srcBuffer.set(tile * tileWidth, 0, (tile + 1) * tileWidth, tileHeight);
+        destBuffer.set(left, top, left + tileWidth, top + tileHeight);
+        canvas.drawBitmap(atlas, srcBuffer, destBuffer, null);
+    }
+
+    /**
+     * Draws a tile scaled into any rectangle, for zoomed cells that are not the atlas size
+     */
+    void draw(Canvas canvas, int tile, RectF dest) {
+        srcBuffer.set(tile * tileWidth, 0, (tile + 1) * tileWidth, tileHeight);
+        canvas.drawBitmap(atlas, srcBuffer, dest, bitmapPaint);
+    }
+
+    //https://stackoverflow.com/questions/12166476/android-canvas-drawtext-set-font-size-from-width
+    private static int setTextSizeForWidth(Paint[] paints, float desiredWidth) {
+        String str = "9";
+        Paint paint = paints[0];
+        int size = 0;
+
+        do {
+            paint.setTextSize(++size);
+        } while (paint.measureText(str) < desiredWidth);
+
+        for (Paint p : paints) {
+            p.setTextSize(size);
+        }
+        Rect bounds = new Rect();
+        paint.getTextBounds(str, 0, str.length(), bounds);
+        return bounds.height();
+    }
+}
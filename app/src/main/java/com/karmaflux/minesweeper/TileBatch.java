@@ -0,0 +1,123 @@
+package com.karmaflux.minesweeper;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.os.Build;
+
+import java.util.Arrays;
+
+/**
+ * Collects atlas tiles and grid lines for a whole frame and draws them with one drawVertices
+ * call textured by the atlas and one drawLines call, instead of one or two calls per cell
+ */
+class TileBatch {
+    // drawVertices indexes vertices with shorts, so larger batches are split
+    private static final int MAX_CELLS_PER_CALL = 65536 / 4;
+
+    private final Paint tilePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private Bitmap shaderBitmap;
+    private int tileWidth;
+
+    private float[] vertices = new float[0];
+    private float[] texCoords = new float[0];
+    private short[] indices = new short[0];
+    private int cellCount;
+
+    private float[] lines = new float[0];
+    private int lineCount;
+
+    /**
+     * Hardware canvases only texture drawVertices from API 29, software canvases always do
+     */
+    static boolean isSupported(Canvas canvas) {
+        return !canvas.isHardwareAccelerated() || Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+    }
+
+    void begin(TileAtlas atlas) {
+        if (atlas.getBitmap() != shaderBitmap) {
+            shaderBitmap = atlas.getBitmap();
+            tilePaint.setShader(new BitmapShader(shaderBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        }
+        tileWidth = atlas.getTileWidth();
+        cellCount = 0;
+        lineCount = 0;
+    }
+
+    void addTile(int tile, float left, float top, float right, float bottom) {
+        if (cellCount * 8 == vertices.length) {
+            final int capacity = Math.max(64, cellCount * 2);
+            vertices = Arrays.copyOf(vertices, capacity * 8);
+            texCoords = Arrays.copyOf(texCoords, capacity * 8);
+        }
+        final int v = cellCount * 8;
+        vertices[v] = left;
+        vertices[v + 1] = top;
+        vertices[v + 2] = right;
+        vertices[v + 3] = top;
+        vertices[v + 4] = right;
+        vertices[v + 5] = bottom;
+        vertices[v + 6] = left;
+        vertices[v + 7] = bottom;
+
+        // half a texel in from the tile edge, so filtering never samples the next tile
+        final float texLeft = tile * tileWidth + 0.5f;
+        final float texRight = (tile + 1) * tileWidth - 0.5f;
+        final float texTop = 0.5f;
+        final float texBottom = shaderBitmap.getHeight() - 0.5f;
+        texCoords[v] = texLeft;
+        texCoords[v + 1] = texTop;
+        texCoords[v + 2] = texRight;
+        texCoords[v + 3] = texTop;
+        texCoords[v + 4] = texRight;
+        texCoords[v + 5] = texBottom;
+        texCoords[v + 6] = texLeft;
+        texCoords[v + 7] = texBottom;
+        cellCount++;
+    }
+
+    void addLine(float startX, float startY, float stopX, float stopY) {
+        if (lineCount * 4 == lines.length) {
+            lines = Arrays.copyOf(lines, Math.max(64, lineCount * 2) * 4);
+        }
+        final int l = lineCount * 4;
+        lines[l] = startX;
+        lines[l + 1] = startY;
+        lines[l + 2] = stopX;
+        lines[l + 3] = stopY;
+        lineCount++;
+    }
+
+    void draw(Canvas canvas, Paint linePaint) {
+        ensureIndices(Math.min(cellCount, MAX_CELLS_PER_CALL));
+        for (int first = 0; first < cellCount; first += MAX_CELLS_PER_CALL) {
+            final int count = Math.min(MAX_CELLS_PER_CALL, cellCount - first);
+            canvas.drawVertices(Canvas.VertexMode.TRIANGLES, count * 8, vertices, first * 8,
+                    texCoords, first * 8, null, 0, indices, 0, count * 6, tilePaint);
+        }
+        if (lineCount > 0) {
+            canvas.drawLines(lines, 0, lineCount * 4, linePaint);
+        }
+    }
+
+    // Two triangles per cell over its 4 vertices, the pattern is the same for every batch
+    private void ensureIndices(int cells) {
+        if (indices.length >= cells * 6) {
+            return;
+        }
+        final int capacity = Math.min(MAX_CELLS_PER_CALL, Math.max(cells, indices.length / 6 * 2));
+        indices = new short[capacity * 6];
+        for (int c = 0; c < capacity; c++) {
+            final int v = c * 4;
+            final int i = c * 6;
+            indices[i] = (short) v;
+            indices[i + 1] = (short) (v + 1);
+            indices[i + 2] = (short) (v + 2);
+            indices[i + 3] = (short) v;
+            indices[i + 4] = (short) (v + 2);
+            indices[i + 5] = (short) (v + 3);
+        }
+    }
+}
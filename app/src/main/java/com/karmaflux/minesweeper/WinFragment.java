@@ -21,6 +21,17 @@ public class WinFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
+        // most players start another game with the same settings, have it ready by then
+        final MainActivity mainActivity = (MainActivity) requireActivity();
+        mainActivity.getBoardGenerator().prepareNext(mainActivity.getPreferences());
+
+        final String replay = getArguments() != null ? getArguments().getString(MainActivity.ARG_REPLAY) : null;
+        if (replay != null) {
+            final View btnShare = view.findViewById(R.id.btnWinShareReplay);
+            btnShare.setVisibility(View.VISIBLE);
+            btnShare.setOnClickListener(v -> mainActivity.shareReplay(replay));
+        }
+
         view.findViewById(R.id.btnWinBackToMenu).setOnClickListener(v ->
                 NavHostFragment.findNavController(WinFragment.this)
                         .popBackStack());
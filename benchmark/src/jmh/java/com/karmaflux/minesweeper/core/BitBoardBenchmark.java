@@ -0,0 +1,115 @@
+package com.karmaflux.minesweeper.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bit plane neighbour operations against the per-cell loops they replace: adjacency counting
+ * during generation, the flood fill of a dig and frontier extraction
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BitBoardBenchmark {
+    @State(Scope.Thread)
+    public static class Board {
+        @Param({"9x9", "30x16", "128x128", "1024x1024"})
+        public String size;
+
+        @Param({"false", "true"})
+        public boolean bitBoards;
+
+        int sizeX;
+        int sizeY;
+        MineBoard board;
+        long seed;
+
+        // an opened board for frontier extraction
+        BitBoard planes;
+        long[] revealed;
+        long[] frontier;
+        byte[] revealedCells;
+
+        @Setup(Level.Trial)
+        public void setupTrial() {
+            final String[] dims = size.split("x");
+            sizeX = Integer.parseInt(dims[0]);
+            sizeY = Integer.parseInt(dims[1]);
+            MineBoard.setBitBoards(bitBoards);
+            board = new MineBoard(sizeX, sizeY, 0f);
+
+            final MineBoard opened = new MineBoard(sizeX, sizeY, 0.1f, 1);
+            opened.freeDigLargestOpening();
+            planes = new BitBoard(sizeX, sizeY);
+            revealed = planes.newPlane();
+            frontier = planes.newPlane();
+            revealedCells = new byte[sizeX * sizeY];
+            for (int i = 0; i < revealedCells.length; i++) {
+                if (opened.getCellState(i % sizeX, i / sizeX) == CellState.UNCOVERED) {
+                    revealedCells[i] = 1;
+                    planes.set(revealed, i % sizeX, i / sizeX);
+                }
+            }
+        }
+
+        // Low density, so the largest opening floods most of the board
+        @Setup(Level.Invocation)
+        public void setupInvocation() {
+            board.regenerate(++seed);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            MineBoard.setBitBoards(false);
+        }
+    }
+
+    @Benchmark
+    public MineBoard generate(Board state) {
+        return new MineBoard(state.sizeX, state.sizeY, 0.15f, state.seed);
+    }
+
+    @Benchmark
+    public int floodFill(Board state) {
+        state.board.freeDigLargestOpening();
+        return state.board.getChangedCount();
+    }
+
+    @Benchmark
+    public int frontier(Board state) {
+        if (state.bitBoards) {
+            state.planes.frontier(state.revealed, state.frontier);
+            return state.planes.count(state.frontier);
+        }
+        final int sizeX = state.sizeX;
+        final int sizeY = state.sizeY;
+        final byte[] revealed = state.revealedCells;
+        int count = 0;
+        for (int y = 0; y < sizeY; y++) {
+            for (int x = 0; x < sizeX; x++) {
+                if (revealed[x + y * sizeX] != 0) {
+                    continue;
+                }
+                search:
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++) {
+                        if (revealed[nx + ny * sizeX] != 0) {
+                            count++;
+                            break search;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,88 @@
+package com.karmaflux.minesweeper.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save and restore of a board in progress, BoardCodec against java serialization as used
+ * by the old instance state Bundle. The encoded sizes are printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BoardCodecBenchmark {
+    @State(Scope.Thread)
+    public static class Game {
+        // smallest, default and largest boards the menu allows, plus the classic sizes
+        @Param({"4x4", "9x9", "16x16", "30x16", "48x48"})
+        public String size;
+
+        @Param({"0.15", "0.5"})
+        public float difficulty;
+
+        MineBoard board;
+        byte[] encoded;
+        byte[] serialized;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            final String[] dims = size.split("x");
+            final int sizeX = Integer.parseInt(dims[0]);
+            final int sizeY = Integer.parseInt(dims[1]);
+            board = new MineBoard(sizeX, sizeY, difficulty, 42);
+            board.freeDig();
+            // a game in progress: also flag every tenth covered cell
+            for (int i = 0; i < sizeX * sizeY; i += 10) {
+                board.flag(i % sizeX, i / sizeX);
+            }
+
+            encoded = BoardCodec.encode(board);
+            serialized = serialize(board);
+            System.out.println("\n" + size + " @ " + difficulty + ": codec " + encoded.length
+                    + " bytes, serialization " + serialized.length + " bytes");
+        }
+    }
+
+    static byte[] serialize(MineBoard board) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream stream = new ObjectOutputStream(out)) {
+            stream.writeObject(board);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] codecEncode(Game game) {
+        return BoardCodec.encode(game.board);
+    }
+
+    @Benchmark
+    public MineBoard codecDecode(Game game) {
+        return BoardCodec.decode(game.encoded);
+    }
+
+    @Benchmark
+    public byte[] serializationWrite(Game game) throws IOException {
+        return serialize(game.board);
+    }
+
+    @Benchmark
+    public Object serializationRead(Game game) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(game.serialized))) {
+            return stream.readObject();
+        }
+    }
+}
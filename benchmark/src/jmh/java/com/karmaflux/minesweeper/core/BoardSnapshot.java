@@ -0,0 +1,18 @@
+package com.karmaflux.minesweeper.core;
+
+/**
+ * Frozen copy of a board, so benchmarks that modify a board can start every
+ * invocation from the same state. Kept as BoardCodec bytes, so restored boards are
+ * regenerated with everything generation precomputes, like the app's.
+ */
+class BoardSnapshot {
+    private final byte[] bytes;
+
+    BoardSnapshot(MineBoard board) {
+        bytes = BoardCodec.encode(board);
+    }
+
+    MineBoard restore() {
+        return BoardCodec.decode(bytes);
+    }
+}
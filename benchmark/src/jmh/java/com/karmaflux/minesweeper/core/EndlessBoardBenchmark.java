@@ -0,0 +1,53 @@
+package com.karmaflux.minesweeper.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reaching new ground on an endless board: generating a chunk the viewport has not
+ * seen yet, and sweeping a viewport across the board so chunks keep being evicted
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EndlessBoardBenchmark {
+    @State(Scope.Thread)
+    public static class Endless {
+        EndlessBoard board;
+        int nextChunk;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            board = new EndlessBoard(0.15f, 42);
+            board.freeDig();
+            nextChunk = 0;
+        }
+    }
+
+    @Benchmark
+    public int generateChunk(Endless state) {
+        // a fresh chunk every call, walking away from the start in a straight line
+        final int x = ++state.nextChunk * EndlessBoard.CHUNK_SIZE;
+        return state.board.getAdjacentBombs(x, 0);
+    }
+
+    @Benchmark
+    public int sweepViewport(Endless state) {
+        // a 24x40 cell viewport panned one screen to the right
+        final int left = ++state.nextChunk * 24;
+        int sum = 0;
+        for (int y = 0; y < 40; y++) {
+            for (int x = left; x < left + 24; x++) {
+                sum += state.board.getAdjacentBombs(x, y);
+            }
+        }
+        return sum;
+    }
+}
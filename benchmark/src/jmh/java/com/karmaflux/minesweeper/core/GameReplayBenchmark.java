@@ -0,0 +1,71 @@
+package com.karmaflux.minesweeper.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replay of a long game on the largest board: random jumps through the game, which
+ * checkpoints bound to CHECKPOINT_INTERVAL replayed moves, against replaying from move zero
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GameReplayBenchmark {
+    @State(Scope.Thread)
+    public static class Replay {
+        @Param({"500", "5000"})
+        public int moves;
+
+        GameCode gameCode;
+        MoveLog log;
+        GameReplay replay;
+        Random random;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            random = new Random(42);
+            gameCode = new GameCode(48, 48, 0.15f, true, 42);
+            log = new MoveLog();
+            for (int i = 0; i < moves; i++) {
+                log.add(i * 250L, random.nextInt(4) == 0 ? MoveLog.FLAG : MoveLog.DIG, random.nextInt(48 * 48));
+            }
+            replay = new GameReplay(gameCode, log);
+        }
+    }
+
+    @Benchmark
+    public int seekRandom(Replay state) {
+        state.replay.seek(state.random.nextInt(state.moves + 1));
+        return state.replay.getPosition();
+    }
+
+    @Benchmark
+    public int replayFromStart(Replay state) {
+        final int target = state.random.nextInt(state.moves + 1);
+        final MineBoard board = state.gameCode.createBoard();
+        board.freeDig();
+        for (int i = 0; i < target; i++) {
+            final int cell = state.log.getCellIndex(i);
+            if (state.log.getAction(i) == MoveLog.FLAG) {
+                board.flag(cell % 48, cell / 48);
+            } else {
+                board.dig(cell % 48, cell / 48);
+            }
+        }
+        return board.getRemainingSafeCells();
+    }
+
+    @Benchmark
+    public GameReplay buildCheckpoints(Replay state) {
+        return new GameReplay(state.gameCode, state.log);
+    }
+}
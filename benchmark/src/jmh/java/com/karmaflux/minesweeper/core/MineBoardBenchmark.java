@@ -0,0 +1,107 @@
+package com.karmaflux.minesweeper.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MineBoardBenchmark {
+    @State(Scope.Thread)
+    public static class Board {
+        @Param({"9x9", "16x16", "30x16", "48x48"})
+        public String size;
+
+        @Param({"0.0", "0.15", "0.5", "1.0"})
+        public float difficulty;
+
+        int sizeX;
+        int sizeY;
+        MineBoard board;
+        int flagX;
+        int flagY;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            final String[] dims = size.split("x");
+            sizeX = Integer.parseInt(dims[0]);
+            sizeY = Integer.parseInt(dims[1]);
+            board = new MineBoard(sizeX, sizeY, difficulty);
+            board.freeDig();
+            for (int i = 0; i < sizeX * sizeY; i++) {
+                final CellState state = board.getCellState(i % sizeX, i / sizeX);
+                if (state == CellState.COVERED || state == CellState.COVERED_BOMB) {
+                    flagX = i % sizeX;
+                    flagY = i / sizeX;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * A fresh, untouched board for every invocation. Low density, so the free dig
+     * cell is a zero cell and digging it floods most of the board.
+     */
+    @State(Scope.Thread)
+    public static class SparseBoard {
+        @Param({"9x9", "16x16", "30x16", "48x48"})
+        public String size;
+
+        BoardSnapshot snapshot;
+        MineBoard board;
+        int zeroX;
+        int zeroY;
+
+        @Setup(Level.Trial)
+        public void setupTrial() {
+            final String[] dims = size.split("x");
+            final int sizeX = Integer.parseInt(dims[0]);
+            final MineBoard template = new MineBoard(sizeX, Integer.parseInt(dims[1]), 0f);
+            final int cell = template.findFreeDigCell();
+            zeroX = cell % sizeX;
+            zeroY = cell / sizeX;
+            snapshot = new BoardSnapshot(template);
+        }
+
+        @Setup(Level.Invocation)
+        public void setupInvocation() {
+            board = snapshot.restore();
+        }
+    }
+
+    @Benchmark
+    public MineBoard construct(Board state) {
+        return new MineBoard(state.sizeX, state.sizeY, state.difficulty);
+    }
+
+    @Benchmark
+    public boolean checkWin(Board state) {
+        return state.board.checkWin();
+    }
+
+    @Benchmark
+    public int flag(Board state) {
+        state.board.flag(state.flagX, state.flagY); // toggles, so the board alternates between two states
+        return state.board.getFlagCount();
+    }
+
+    @Benchmark
+    public boolean digZeroCell(SparseBoard state) {
+        return state.board.dig(state.zeroX, state.zeroY);
+    }
+
+    @Benchmark
+    public int freeDig(SparseBoard state) {
+        state.board.freeDig();
+        return state.board.getChangedCount();
+    }
+}
@@ -0,0 +1,96 @@
+package com.karmaflux.minesweeper.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hint latency for one move: the incremental update after a single safe dig, against
+ * recomputing everything with an empty cache. The 120x60 board grows frontier components
+ * too large to count whole, which are settled and counted in chunks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class MineProbabilityBenchmark {
+    @Param({"30x16", "48x48", "120x60"})
+    public String size;
+
+    @Param({"0.2"})
+    public float difficulty;
+
+    private BoardSnapshot snapshot;
+    private int moveX;
+    private int moveY;
+    private MineBoard board;
+    private MineProbability incremental;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        final String[] dims = size.split("x");
+        final int sizeX = Integer.parseInt(dims[0]);
+        final int sizeY = Integer.parseInt(dims[1]);
+        final Random rng = new Random(42);
+        MineBoard template;
+        do {
+            template = new MineBoard(sizeX, sizeY, difficulty, rng.nextLong());
+            template.freeDig();
+        } while (template.getChangedCount() < 10); // start from a real opening
+
+        // play the safe cells most likely to be chosen by a player: next to the opening
+        final MineProbability probability = new MineProbability();
+        for (int moves = 0; moves < sizeX * sizeY / 20; moves++) {
+            probability.update(template);
+            int best = -1;
+            float bestP = 2f;
+            for (int i = 0; i < sizeX * sizeY; i++) {
+                final float p = probability.getProbability(i % sizeX, i / sizeX);
+                if (p >= 0 && p < bestP && template.getCellState(i % sizeX, i / sizeX) == CellState.COVERED) {
+                    bestP = p;
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            template.dig(best % sizeX, best / sizeX);
+        }
+
+        // the move under test: a random safe covered cell
+        do {
+            moveX = rng.nextInt(sizeX);
+            moveY = rng.nextInt(sizeY);
+        } while (template.getCellState(moveX, moveY) != CellState.COVERED);
+        snapshot = new BoardSnapshot(template);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        board = snapshot.restore();
+        incremental = new MineProbability();
+        incremental.update(board);
+        board.dig(moveX, moveY);
+    }
+
+    @Benchmark
+    public int incrementalUpdate() {
+        incremental.update(board);
+        return incremental.getEnumeratedComponents();
+    }
+
+    @Benchmark
+    public int fullRecompute() {
+        final MineProbability fresh = new MineProbability();
+        fresh.update(board);
+        return fresh.getEnumeratedComponents();
+    }
+}
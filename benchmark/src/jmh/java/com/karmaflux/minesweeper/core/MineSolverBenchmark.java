@@ -0,0 +1,56 @@
+package com.karmaflux.minesweeper.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * No-guess generation, reported as boards per second by size and difficulty
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class MineSolverBenchmark {
+    @Param({"9x9", "16x16", "30x16", "48x48"})
+    public String size;
+
+    @Param({"0.0", "0.1", "0.2"})
+    public float difficulty;
+
+    private int sizeX;
+    private int sizeY;
+    private final MineSolver solver = new MineSolver();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final String[] dims = size.split("x");
+        sizeX = Integer.parseInt(dims[0]);
+        sizeY = Integer.parseInt(dims[1]);
+    }
+
+    /**
+     * One generation attempt plus the solver run that accepts or rejects it
+     */
+    @Benchmark
+    public boolean generateAndSolve() {
+        final MineBoard board = new MineBoard(sizeX, sizeY, difficulty);
+        final int start = board.findFreeDigCell();
+        return start >= 0 && solver.isSolvable(board, start % sizeX, start / sizeX);
+    }
+
+    /**
+     * Complete solvable boards, retries included
+     */
+    @Benchmark
+    public MineBoard generateSolvable() {
+        return MineBoard.generateSolvable(sizeX, sizeY, difficulty, 500);
+    }
+}
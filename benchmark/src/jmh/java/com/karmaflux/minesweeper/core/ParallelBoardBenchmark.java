@@ -0,0 +1,52 @@
+package com.karmaflux.minesweeper.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation of very large boards, on one thread against the fork/join band tasks
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelBoardBenchmark {
+    @State(Scope.Thread)
+    public static class Board {
+        @Param({"512x512", "1024x1024", "2048x2048"})
+        public String size;
+
+        @Param({"false", "true"})
+        public boolean parallel;
+
+        int sizeX;
+        int sizeY;
+        long seed;
+
+        @Setup(Level.Trial)
+        public void setupTrial() {
+            final String[] dims = size.split("x");
+            sizeX = Integer.parseInt(dims[0]);
+            sizeY = Integer.parseInt(dims[1]);
+            MineBoard.setParallelMinCells(parallel ? 0 : Integer.MAX_VALUE);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            MineBoard.setParallelMinCells(MineBoard.DEFAULT_PARALLEL_MIN_CELLS);
+        }
+    }
+
+    @Benchmark
+    public MineBoard generate(Board state) {
+        return new MineBoard(state.sizeX, state.sizeY, 0.15f, ++state.seed);
+    }
+}
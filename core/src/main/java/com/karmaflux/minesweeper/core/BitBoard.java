@@ -0,0 +1,341 @@
+package com.karmaflux.minesweeper.core;
+
+import java.util.Arrays;
+
+/**
+ * Board-sized bit planes, one bit per cell with every row packed into its own run of longs
+ * (bit x % 64 of word y * wordsPerRow + x / 64), and the neighbour operations on them done 64
+ * cells at a time with shifts, ANDs and ORs: 8-neighbour dilation, bit-sliced neighbour
+ * counts, zero region flood fill and frontier extraction.
+ * <p>
+ * Bits past the right edge of a row are always kept clear.
+ */
+public final class BitBoard {
+    private final int sizeX;
+    private final int sizeY;
+    private final int wordsPerRow;
+    private final long lastWordMask;
+
+    public BitBoard(int sizeX, int sizeY) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.wordsPerRow = (sizeX + 63) >>> 6;
+        this.lastWordMask = (sizeX & 63) == 0 ? -1L : (1L << sizeX) - 1;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public long[] newPlane() {
+        return new long[wordsPerRow * sizeY];
+    }
+
+    public void set(long[] plane, int x, int y) {
+        plane[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    public boolean get(long[] plane, int x, int y) {
+        return (plane[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * @return Row-major cell index of the first set bit at or after the given cell index, -1 if none
+     */
+    public int nextSetBit(long[] plane, int from) {
+        if (from >= sizeX * sizeY) {
+            return -1;
+        }
+        int y = from / sizeX;
+        int w = (from % sizeX) >>> 6;
+        long word = plane[y * wordsPerRow + w] & (-1L << from % sizeX);
+        while (true) {
+            if (word != 0) {
+                return y * sizeX + (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == wordsPerRow) {
+                w = 0;
+                if (++y == sizeY) {
+                    return -1;
+                }
+            }
+            word = plane[y * wordsPerRow + w];
+        }
+    }
+
+    /**
+     * Sets the bit of every cell of a row-major byte array whose masked bits equal value,
+     * clearing the others
+     */
+    public void pack(byte[] cells, int mask, int value, long[] plane) {
+        for (int y = 0; y < sizeY; y++) {
+            final int row = y * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                final int start = y * sizeX + (w << 6);
+                final int end = Math.min(start + 64, (y + 1) * sizeX);
+                long word = 0;
+                for (int i = start; i < end; i++) {
+                    if ((cells[i] & mask) == value) {
+                        word |= 1L << (i - start);
+                    }
+                }
+                plane[row + w] = word;
+            }
+        }
+    }
+
+    /**
+     * ORs every cell's count from bit-sliced count planes into a row-major byte array
+     */
+    public void unpackCounts(long[][] counts, byte[] cells) {
+        for (int y = 0; y < sizeY; y++) {
+            final int row = y * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                final long c0 = counts[0][row + w];
+                final long c1 = counts[1][row + w];
+                final long c2 = counts[2][row + w];
+                final long c3 = counts[3][row + w];
+                if ((c0 | c1 | c2 | c3) == 0) {
+                    continue;
+                }
+                final int start = y * sizeX + (w << 6);
+                final int end = Math.min(start + 64, (y + 1) * sizeX);
+                for (int i = start, bit = 0; i < end; i++, bit++) {
+                    cells[i] |= (int) ((c0 >>> bit) & 1) | (int) ((c1 >>> bit) & 1) << 1
+                            | (int) ((c2 >>> bit) & 1) << 2 | (int) ((c3 >>> bit) & 1) << 3;
+                }
+            }
+        }
+    }
+
+    public int count(long[] plane) {
+        int count = 0;
+        for (long word : plane) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * dst = every cell of src plus its 8 neighbours. src and dst must not be the same plane.
+     */
+    public void dilate(long[] src, long[] dst) {
+        dilateRows(src, dst, 0, sizeY - 1);
+    }
+
+    /**
+     * dst = the covered cells next to a revealed one, the cells a solver has constraints on
+     */
+    public void frontier(long[] revealed, long[] dst) {
+        dilate(revealed, dst);
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] &= ~revealed[i];
+        }
+    }
+
+    /**
+     * Counts the set neighbours of every cell, bit-sliced: bit k of a cell's count ends up in
+     * the cell's bit of counts[k]. The 8 shifted neighbour planes are summed with a ripple of
+     * half adders over the 4 count planes, 64 cells per operation.
+     *
+     * @param counts Four planes, overwritten
+     */
+    public void neighbourCounts(long[] src, long[][] counts) {
+        final long[] c0 = counts[0];
+        final long[] c1 = counts[1];
+        final long[] c2 = counts[2];
+        final long[] c3 = counts[3];
+        for (int y = 0; y < sizeY; y++) {
+            final int row = y * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                long s0 = 0;
+                long s1 = 0;
+                long s2 = 0;
+                long s3 = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (y + dy < 0 || y + dy >= sizeY) {
+                        continue;
+                    }
+                    final int r = row + dy * wordsPerRow;
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if (dx == 0 && dy == 0) {
+                            continue;
+                        }
+                        long carry = dx == 0 ? src[r + w] : dx < 0 ? shiftedWest(src, r, w) : shiftedEast(src, r, w);
+                        long t = s0 & carry;
+                        s0 ^= carry;
+                        carry = t;
+                        t = s1 & carry;
+                        s1 ^= carry;
+                        carry = t;
+                        t = s2 & carry;
+                        s2 ^= carry;
+                        s3 |= t; // at most 8, the fourth bit never carries
+                    }
+                }
+                final long mask = w == wordsPerRow - 1 ? lastWordMask : -1L;
+                c0[row + w] = s0 & mask;
+                c1[row + w] = s1 & mask;
+                c2[row + w] = s2 & mask;
+                c3[row + w] = s3 & mask;
+            }
+        }
+    }
+
+    /**
+     * Fills region with every cell of zeros 8-connected to the cells already set in it. Rows
+     * are filled horizontally with a log-step occluded fill, then sweeps down and up the rows
+     * in play carry the region to the rows next to it until nothing changes. Only rows from
+     * firstRow to lastRow may hold region bits on entry.
+     *
+     * @return The first and last row of the region, packed as first << 32 | last
+     */
+    public long fillRegion(long[] zeros, long[] region, int firstRow, int lastRow) {
+        int first = firstRow;
+        int last = lastRow;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int y = first; y <= last; y++) {
+                if (growRow(zeros, region, y)) {
+                    changed = true;
+                }
+                if (y == last && y + 1 < sizeY && growRow(zeros, region, y + 1)) {
+                    last++;
+                    changed = true;
+                }
+            }
+            for (int y = last; y >= first; y--) {
+                if (growRow(zeros, region, y)) {
+                    changed = true;
+                }
+                if (y == first && y > 0 && growRow(zeros, region, y - 1)) {
+                    first--;
+                    changed = true;
+                }
+            }
+        }
+        return ((long) first << 32) | last;
+    }
+
+    /**
+     * dst rows firstRow to lastRow = src dilated, reading src one row further either side
+     */
+    public void dilateRows(long[] src, long[] dst, int firstRow, int lastRow) {
+        for (int y = firstRow; y <= lastRow; y++) {
+            final int row = y * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                long word = horizontalDilation(src, row, w);
+                if (y > 0) {
+                    word |= horizontalDilation(src, row - wordsPerRow, w);
+                }
+                if (y + 1 < sizeY) {
+                    word |= horizontalDilation(src, row + wordsPerRow, w);
+                }
+                dst[row + w] = w == wordsPerRow - 1 ? word & lastWordMask : word;
+            }
+        }
+    }
+
+    /**
+     * Clears rows firstRow to lastRow, so a scratch plane can be reused without a full clear
+     */
+    public void clearRows(long[] plane, int firstRow, int lastRow) {
+        Arrays.fill(plane, firstRow * wordsPerRow, (lastRow + 1) * wordsPerRow, 0L);
+    }
+
+    // Adds to row y the zero cells touching the region in it or the rows either side
+    private boolean growRow(long[] zeros, long[] region, int y) {
+        final int row = y * wordsPerRow;
+        boolean seeded = false;
+        for (int w = 0; w < wordsPerRow; w++) {
+            long touching = 0;
+            if (y > 0) {
+                touching |= horizontalDilation(region, row - wordsPerRow, w);
+            }
+            if (y + 1 < sizeY) {
+                touching |= horizontalDilation(region, row + wordsPerRow, w);
+            }
+            if ((touching & zeros[row + w] & ~region[row + w]) != 0) {
+                region[row + w] |= touching & zeros[row + w];
+                seeded = true;
+            }
+        }
+        return fillRow(zeros, region, row) || seeded;
+    }
+
+    /**
+     * Extends the region bits of a row along the zero runs they sit in, across word borders
+     *
+     * @return True if any bit was added
+     */
+    private boolean fillRow(long[] zeros, long[] region, int row) {
+        boolean changed = false;
+        long carry = 0; // region reached the top bit of the previous word
+        for (int w = 0; w < wordsPerRow; w++) {
+            final long empty = zeros[row + w];
+            final long seed = region[row + w] | (carry & empty & 1L);
+            final long filled = fillUp(seed, empty);
+            changed |= filled != region[row + w];
+            region[row + w] = filled;
+            carry = filled >>> 63;
+        }
+        carry = 0;
+        for (int w = wordsPerRow - 1; w >= 0; w--) {
+            final long empty = zeros[row + w];
+            final long seed = region[row + w] | ((carry << 63) & empty);
+            final long filled = fillDown(seed, empty);
+            changed |= filled != region[row + w];
+            region[row + w] = filled;
+            carry = filled & 1L;
+        }
+        return changed;
+    }
+
+    // Kogge-Stone occluded fill toward higher bits through the empty bits
+    private static long fillUp(long g, long p) {
+        g |= p & (g << 1);
+        p &= p << 1;
+        g |= p & (g << 2);
+        p &= p << 2;
+        g |= p & (g << 4);
+        p &= p << 4;
+        g |= p & (g << 8);
+        p &= p << 8;
+        g |= p & (g << 16);
+        p &= p << 16;
+        return g | (p & (g << 32));
+    }
+
+    private static long fillDown(long g, long p) {
+        g |= p & (g >>> 1);
+        p &= p >>> 1;
+        g |= p & (g >>> 2);
+        p &= p >>> 2;
+        g |= p & (g >>> 4);
+        p &= p >>> 4;
+        g |= p & (g >>> 8);
+        p &= p >>> 8;
+        g |= p & (g >>> 16);
+        p &= p >>> 16;
+        return g | (p & (g >>> 32));
+    }
+
+    private long horizontalDilation(long[] plane, int row, int w) {
+        return plane[row + w] | shiftedWest(plane, row, w) | shiftedEast(plane, row, w);
+    }
+
+    // Each cell's west neighbour moved onto the cell
+    private long shiftedWest(long[] plane, int row, int w) {
+        return (plane[row + w] << 1) | (w > 0 ? plane[row + w - 1] >>> 63 : 0);
+    }
+
+    // Each cell's east neighbour moved onto the cell
+    private long shiftedEast(long[] plane, int row, int w) {
+        return (plane[row + w] >>> 1) | (w + 1 < wordsPerRow ? plane[row + w + 1] << 63 : 0);
+    }
+}
@@ -0,0 +1,170 @@
+package com.karmaflux.minesweeper.core;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Compact binary save format for a board in progress. Bombs and adjacency are not stored,
+ * they are regenerated from the seed, so only the 2-bit play state of every cell is written:
+ * bit-packed 4 cells per byte, or run-length encoded when that is smaller.
+ * <p>
+ * Layout: version byte, flags byte, varint sizeX, varint sizeY, difficulty float bits (4 bytes),
+ * seed (8 bytes), then the cell states. All multi-byte values are big endian.
+ */
+public final class BoardCodec {
+    /**
+     * Bumped whenever the layout or the board generator changes, since an old seed would no
+     * longer regenerate the same bombs
+     */
+    public static final int VERSION = 1;
+
+    private static final int FLAG_RLE = 0x01;
+
+    private BoardCodec() {
+    }
+
+    public static byte[] encode(MineBoard board) {
+        final int cellCount = board.getSizeX() * board.getSizeY();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(24 + cellCount / 4);
+
+        final byte[] packed = packStates(board, cellCount);
+        final byte[] rle = encodeRuns(board, cellCount, packed.length);
+
+        out.write(VERSION);
+        out.write(rle != null ? FLAG_RLE : 0);
+        writeVarint(out, board.getSizeX());
+        writeVarint(out, board.getSizeY());
+        writeInt(out, Float.floatToIntBits(board.getDifficulty()));
+        writeInt(out, (int) (board.getSeed() >>> 32));
+        writeInt(out, (int) board.getSeed());
+        final byte[] states = rle != null ? rle : packed;
+        out.write(states, 0, states.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException If the data is malformed or from an unknown version
+     */
+    public static MineBoard decode(byte[] data) {
+        final Reader in = new Reader(data);
+        final int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported board format version " + version);
+        }
+        final int flags = in.readByte();
+        final int sizeX = in.readVarint();
+        final int sizeY = in.readVarint();
+        if (sizeX <= 0 || sizeY <= 0 || (long) sizeX * sizeY > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid board size " + sizeX + "x" + sizeY);
+        }
+        final float difficulty = Float.intBitsToFloat(in.readInt());
+        final long seed = ((long) in.readInt() << 32) | (in.readInt() & 0xFFFFFFFFL);
+
+        final int cellCount = sizeX * sizeY;
+        final byte[] states = new byte[cellCount];
+        if ((flags & FLAG_RLE) != 0) {
+            int i = 0;
+            while (i < cellCount) {
+                final int run = in.readVarint();
+                final int length = (run >>> 2) + 1;
+                if (length <= 0 || length > cellCount - i) {
+                    throw new IllegalArgumentException("Run past the end of the board");
+                }
+                Arrays.fill(states, i, i + length, (byte) (run & 3));
+                i += length;
+            }
+        } else {
+            for (int i = 0; i < cellCount; i += 4) {
+                final int b = in.readByte();
+                for (int j = 0; j < 4 && i + j < cellCount; j++) {
+                    states[i + j] = (byte) ((b >>> (j * 2)) & 3);
+                }
+            }
+        }
+        if (in.position != data.length) {
+            throw new IllegalArgumentException("Trailing data after board");
+        }
+
+        final MineBoard board = new MineBoard(sizeX, sizeY, difficulty, seed);
+        board.restoreStates(states);
+        return board;
+    }
+
+    private static byte[] packStates(MineBoard board, int cellCount) {
+        final byte[] packed = new byte[(cellCount + 3) / 4];
+        for (int i = 0; i < cellCount; i++) {
+            packed[i >>> 2] |= (byte) (board.getStateCode(i) << ((i & 3) * 2));
+        }
+        return packed;
+    }
+
+    /**
+     * Each run is a varint of (length - 1) << 2 | state
+     *
+     * @return The runs, or null as soon as they would not beat the given packed size
+     */
+    private static byte[] encodeRuns(MineBoard board, int cellCount, int packedSize) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int i = 0;
+        while (i < cellCount) {
+            final int state = board.getStateCode(i);
+            int end = i + 1;
+            while (end < cellCount && board.getStateCode(end) == state) {
+                end++;
+            }
+            writeVarint(out, ((end - i - 1) << 2) | state);
+            if (out.size() >= packedSize) {
+                return null;
+            }
+            i = end;
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Board data is truncated");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        int readInt() {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                final int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Varint too long");
+        }
+    }
+}
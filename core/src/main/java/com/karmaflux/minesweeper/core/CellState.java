@@ -1,6 +1,6 @@
-package com.karmaflux.minesweeper;
+package com.karmaflux.minesweeper.core;
 
-enum CellState {
+public enum CellState {
     COVERED,
     COVERED_BOMB,
     UNCOVERED,
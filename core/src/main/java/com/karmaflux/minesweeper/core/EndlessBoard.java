@@ -0,0 +1,488 @@
+package com.karmaflux.minesweeper.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Unbounded board split into CHUNK_SIZE x CHUNK_SIZE chunks, each generated on first access
+ * from the seed and its chunk coordinates. Bombs of a chunk depend only on those, so
+ * adjacency across a chunk edge comes from regenerating the neighbour's bombs.
+ * <p>
+ * At most MAX_LIVE_CHUNKS chunks are kept unpacked, least recently used first out. An
+ * evicted chunk that was never played is simply regenerated later, a played one is kept as
+ * run-length encoded cell states, so memory grows with the explored area only.
+ * <p>
+ * Cells use the same packed byte layout as MineBoard.
+ */
+public final class EndlessBoard implements IBoard {
+    public static final int CHUNK_SHIFT = 5;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+    private static final int MAX_LIVE_CHUNKS = 256;
+    // Below about 10% density the zero regions of an endless plane percolate and a single
+    // dig would never stop, so endless boards never go under this. Above it every zero
+    // region is finite and a flood always runs to completion.
+    private static final float MIN_DENSITY = 0.12f;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int ADJACENT_MASK = 0x0F;
+    private static final int BOMB_BIT = 0x10;
+    private static final int STATE_MASK = 0x60;
+    private static final int STATE_COVERED = 0x00;
+    private static final int STATE_FLAGGED = 0x20;
+    private static final int STATE_UNCOVERED = 0x40;
+
+    private static final class Chunk {
+        final byte[] cells = new byte[CHUNK_CELLS];
+        boolean modified;
+    }
+
+    private final long seed;
+    private final float difficulty;
+    private final int bombsPerChunk;
+    private final LinkedHashMap<Long, Chunk> liveChunks = new LinkedHashMap<Long, Chunk>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+            if (size() <= MAX_LIVE_CHUNKS) {
+                return false;
+            }
+            if (eldest.getValue().modified) {
+                packedChunks.put(eldest.getKey(), pack(eldest.getValue()));
+            }
+            if (eldest.getValue() == lastChunk) {
+                lastChunk = null;
+            }
+            return true;
+        }
+    };
+    private final HashMap<Long, byte[]> packedChunks = new HashMap<>();
+    // Most lookups hit the chunk of the previous one, this skips the map and the boxing
+    private long lastKey;
+    private Chunk lastChunk;
+
+    private int flagCount;
+    private long uncoveredCount;
+
+    // Cells changed by the last move, doubles as the flood fill queue like in MineBoard
+    private int[] changedX = new int[64];
+    private int[] changedY = new int[64];
+    private int changedCount;
+
+    // Generation scratch, reused so only the chunk itself is allocated
+    private final int[] order = new int[CHUNK_CELLS];
+    private final byte[] paddedBombs = new byte[(CHUNK_SIZE + 2) * (CHUNK_SIZE + 2)];
+    private final long[] bombBits = new long[CHUNK_CELLS / 64];
+
+    public EndlessBoard(float difficulty, long seed) {
+        this.difficulty = difficulty;
+        this.seed = seed;
+        this.bombsPerChunk = Math.max(MineBoard.estimateBombs(CHUNK_SIZE, CHUNK_SIZE, difficulty),
+                (int) (CHUNK_CELLS * MIN_DENSITY));
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public float getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * @return Number of safe cells uncovered so far, the endless equivalent of a score
+     */
+    public long getUncoveredCount() {
+        return uncoveredCount;
+    }
+
+    public int getFlagCount() {
+        return flagCount;
+    }
+
+    /**
+     * @return Chunks currently unpacked plus played chunks kept packed, for memory diagnostics
+     */
+    public int getChunkCount() {
+        return liveChunks.size() + packedChunks.size();
+    }
+
+    private static long chunkKey(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    private static int localIndex(int x, int y) {
+        return ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+    }
+
+    private Chunk chunkAt(int x, int y) {
+        final int chunkX = x >> CHUNK_SHIFT;
+        final int chunkY = y >> CHUNK_SHIFT;
+        final long key = chunkKey(chunkX, chunkY);
+        if (lastChunk != null && key == lastKey) {
+            return lastChunk;
+        }
+        Chunk chunk = liveChunks.get(key);
+        if (chunk == null) {
+            chunk = generate(chunkX, chunkY);
+            final byte[] packed = packedChunks.remove(key);
+            if (packed != null) {
+                unpack(packed, chunk);
+            }
+            liveChunks.put(key, chunk);
+        }
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    private byte cell(int x, int y) {
+        return chunkAt(x, y).cells[localIndex(x, y)];
+    }
+
+    private void setState(int x, int y, int state) {
+        final Chunk chunk = chunkAt(x, y);
+        final int i = localIndex(x, y);
+        chunk.cells[i] = (byte) ((chunk.cells[i] & ~STATE_MASK) | state);
+        chunk.modified = true;
+    }
+
+    private Chunk generate(int chunkX, int chunkY) {
+        // bombs of the chunk and of the one cell ring around it taken from its neighbours
+        Arrays.fill(paddedBombs, (byte) 0);
+        final int stride = CHUNK_SIZE + 2;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                placeBombs(chunkX + dx, chunkY + dy);
+                final int fromY = dy < 0 ? CHUNK_SIZE - 1 : 0;
+                final int toY = dy > 0 ? 0 : CHUNK_SIZE - 1;
+                final int fromX = dx < 0 ? CHUNK_SIZE - 1 : 0;
+                final int toX = dx > 0 ? 0 : CHUNK_SIZE - 1;
+                for (int ly = fromY; ly <= toY; ly++) {
+                    for (int lx = fromX; lx <= toX; lx++) {
+                        final int bit = (ly << CHUNK_SHIFT) | lx;
+                        if ((bombBits[bit >>> 6] & (1L << bit)) != 0) {
+                            paddedBombs[(ly + 1 + dy * CHUNK_SIZE) * stride + lx + 1 + dx * CHUNK_SIZE] = 1;
+                        }
+                    }
+                }
+            }
+        }
+
+        final Chunk chunk = new Chunk();
+        for (int ly = 0; ly < CHUNK_SIZE; ly++) {
+            for (int lx = 0; lx < CHUNK_SIZE; lx++) {
+                final int p = (ly + 1) * stride + lx + 1;
+                final int adjacent = paddedBombs[p - stride - 1] + paddedBombs[p - stride] + paddedBombs[p - stride + 1]
+                        + paddedBombs[p - 1] + paddedBombs[p + 1]
+                        + paddedBombs[p + stride - 1] + paddedBombs[p + stride] + paddedBombs[p + stride + 1];
+                chunk.cells[(ly << CHUNK_SHIFT) | lx] = (byte) ((paddedBombs[p] != 0 ? BOMB_BIT : 0) | adjacent);
+            }
+        }
+        return chunk;
+    }
+
+    // Fills bombBits with the bombs of a chunk, a partial Fisher-Yates shuffle like MineBoard's
+    private void placeBombs(int chunkX, int chunkY) {
+        final SplitMix64 rng = new SplitMix64(seed ^ chunkX * 0x9E3779B97F4A7C15L ^ chunkY * 0xC2B2AE3D27D4EB4FL);
+        rng.nextLong(); // decorrelate neighbouring chunk seeds
+        Arrays.fill(bombBits, 0L);
+        for (int i = 0; i < CHUNK_CELLS; i++) {
+            order[i] = i;
+        }
+        for (int i = 0; i < bombsPerChunk; i++) {
+            final int j = i + rng.nextInt(CHUNK_CELLS - i);
+            final int picked = order[j];
+            order[j] = order[i];
+            order[i] = picked;
+            bombBits[picked >>> 6] |= 1L << picked;
+        }
+    }
+
+    // Played chunks keep only their states, each run a varint of (length - 1) << 2 | state code
+    private static byte[] pack(Chunk chunk) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        int i = 0;
+        while (i < CHUNK_CELLS) {
+            final int state = chunk.cells[i] & STATE_MASK;
+            int end = i + 1;
+            while (end < CHUNK_CELLS && (chunk.cells[end] & STATE_MASK) == state) {
+                end++;
+            }
+            int run = ((end - i - 1) << 2) | (state >>> 5);
+            while ((run & ~0x7F) != 0) {
+                out.write((run & 0x7F) | 0x80);
+                run >>>= 7;
+            }
+            out.write(run);
+            i = end;
+        }
+        return out.toByteArray();
+    }
+
+    private static void unpack(byte[] packed, Chunk chunk) {
+        int position = 0;
+        int i = 0;
+        while (i < CHUNK_CELLS) {
+            int run = 0;
+            int shift = 0;
+            int b;
+            do {
+                if (position >= packed.length || shift > 28) {
+                    throw new IllegalArgumentException("Corrupt chunk data");
+                }
+                b = packed[position++];
+                run |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            final int end = i + (run >>> 2) + 1;
+            final int state = (run & 3) << 5;
+            if (end > CHUNK_CELLS || state == STATE_MASK) {
+                throw new IllegalArgumentException("Corrupt chunk data");
+            }
+            for (; i < end; i++) {
+                chunk.cells[i] = (byte) ((chunk.cells[i] & ~STATE_MASK) | state);
+            }
+        }
+        chunk.modified = true;
+    }
+
+    public CellState getCellState(int x, int y) {
+        final int cell = cell(x, y);
+        final boolean bomb = (cell & BOMB_BIT) != 0;
+        switch (cell & STATE_MASK) {
+            case STATE_FLAGGED:
+                return bomb ? CellState.FLAGGED_BOMB : CellState.FLAGGED;
+            case STATE_UNCOVERED:
+                return bomb ? CellState.BOMB : CellState.UNCOVERED;
+            default:
+                return bomb ? CellState.COVERED_BOMB : CellState.COVERED;
+        }
+    }
+
+    public int getAdjacentBombs(int x, int y) {
+        return cell(x, y) & ADJACENT_MASK;
+    }
+
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    public int getChangedX(int i) {
+        return changedX[i];
+    }
+
+    public int getChangedY(int i) {
+        return changedY[i];
+    }
+
+    private void uncover(int x, int y) {
+        final int cell = cell(x, y);
+        if ((cell & STATE_MASK) == STATE_FLAGGED) {
+            flagCount--; // the flood fill also opens wrongly flagged cells
+        }
+        if ((cell & BOMB_BIT) == 0) {
+            uncoveredCount++;
+        }
+        setState(x, y, STATE_UNCOVERED);
+        if (changedCount == changedX.length) {
+            changedX = Arrays.copyOf(changedX, changedCount * 2);
+            changedY = Arrays.copyOf(changedY, changedCount * 2);
+        }
+        changedX[changedCount] = x;
+        changedY[changedCount] = y;
+        changedCount++;
+    }
+
+    public boolean dig(int x, int y) {
+        changedCount = 0;
+        final int cell = cell(x, y);
+        if ((cell & STATE_MASK) != STATE_COVERED) {
+            return false;
+        }
+        uncover(x, y);
+        if ((cell & BOMB_BIT) != 0) {
+            return true;
+        }
+        uncoverNeighbors(0);
+        return false;
+    }
+
+    public boolean chord(int x, int y) {
+        changedCount = 0;
+        final int cell = cell(x, y);
+        final int adjacent = cell & ADJACENT_MASK;
+        if ((cell & STATE_MASK) != STATE_UNCOVERED || (cell & BOMB_BIT) != 0 || adjacent == 0) {
+            return false;
+        }
+        int flags = 0;
+        for (int ny = y - 1; ny <= y + 1; ny++) {
+            for (int nx = x - 1; nx <= x + 1; nx++) {
+                if ((cell(nx, ny) & STATE_MASK) == STATE_FLAGGED) {
+                    flags++;
+                }
+            }
+        }
+        if (flags != adjacent) {
+            return false;
+        }
+
+        boolean hitBomb = false;
+        for (int ny = y - 1; ny <= y + 1; ny++) {
+            for (int nx = x - 1; nx <= x + 1; nx++) {
+                final int n = cell(nx, ny);
+                if ((n & STATE_MASK) == STATE_COVERED) {
+                    uncover(nx, ny);
+                    hitBomb |= (n & BOMB_BIT) != 0;
+                }
+            }
+        }
+        uncoverNeighbors(0);
+        return hitBomb;
+    }
+
+    // Flood fill over the change list from head, see MineBoard.uncoverNeighbors
+    private void uncoverNeighbors(int head) {
+        while (head < changedCount) {
+            final int x = changedX[head];
+            final int y = changedY[head];
+            head++;
+            if ((cell(x, y) & (BOMB_BIT | ADJACENT_MASK)) != 0) {
+                continue;
+            }
+            for (int ny = y - 1; ny <= y + 1; ny++) {
+                for (int nx = x - 1; nx <= x + 1; nx++) {
+                    if ((cell(nx, ny) & STATE_MASK) != STATE_UNCOVERED) {
+                        uncover(nx, ny);
+                    }
+                }
+            }
+        }
+    }
+
+    public void flag(int x, int y) {
+        changedCount = 0;
+        switch (cell(x, y) & STATE_MASK) {
+            case STATE_COVERED:
+                setState(x, y, STATE_FLAGGED);
+                flagCount++;
+                break;
+            case STATE_FLAGGED:
+                setState(x, y, STATE_COVERED);
+                flagCount--;
+                break;
+            default:
+                return;
+        }
+        changedX[0] = x;
+        changedY[0] = y;
+        changedCount = 1;
+    }
+
+    /**
+     * Digs the safe cell of chunk (0, 0) with the fewest adjacent bombs, the first one found
+     * scanning out from the middle of the chunk
+     */
+    public void freeDig() {
+        int best = -1;
+        int bestAdjacent = Integer.MAX_VALUE;
+        final int middle = CHUNK_SIZE / 2;
+        for (int ring = 0; ring < middle && bestAdjacent > 0; ring++) {
+            for (int y = middle - ring; y <= middle + ring && y < CHUNK_SIZE; y++) {
+                for (int x = middle - ring; x <= middle + ring && x < CHUNK_SIZE; x++) {
+                    final int cell = cell(x, y);
+                    if ((cell & BOMB_BIT) == 0 && (cell & ADJACENT_MASK) < bestAdjacent) {
+                        bestAdjacent = cell & ADJACENT_MASK;
+                        best = localIndex(x, y);
+                    }
+                }
+            }
+        }
+        if (best >= 0) {
+            dig(best & CHUNK_MASK, best >> CHUNK_SHIFT);
+        }
+    }
+
+    /**
+     * @return Always false, an endless board can't be cleared
+     */
+    public boolean checkWin() {
+        return false;
+    }
+
+    /**
+     * Writes the seed, difficulty and the states of every played chunk. Unplayed chunks are
+     * left out, they regenerate from the seed.
+     */
+    public byte[] encode() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(seed);
+            out.writeFloat(difficulty);
+            out.writeInt(flagCount);
+            out.writeLong(uncoveredCount);
+            int played = packedChunks.size();
+            for (Chunk chunk : liveChunks.values()) {
+                if (chunk.modified) {
+                    played++;
+                }
+            }
+            out.writeInt(played);
+            for (Map.Entry<Long, byte[]> entry : packedChunks.entrySet()) {
+                writeChunk(out, entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<Long, Chunk> entry : liveChunks.entrySet()) {
+                if (entry.getValue().modified) {
+                    writeChunk(out, entry.getKey(), pack(entry.getValue()));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeChunk(DataOutputStream out, long key, byte[] packed) throws IOException {
+        out.writeLong(key);
+        out.writeInt(packed.length);
+        out.write(packed);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the data is malformed or from an unknown version
+     */
+    public static EndlessBoard decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            final int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported endless board version " + version);
+            }
+            final long seed = in.readLong();
+            final EndlessBoard board = new EndlessBoard(in.readFloat(), seed);
+            board.flagCount = in.readInt();
+            board.uncoveredCount = in.readLong();
+            final int played = in.readInt();
+            for (int i = 0; i < played; i++) {
+                final long key = in.readLong();
+                final int length = in.readInt();
+                if (length <= 0 || length > CHUNK_CELLS * 2) {
+                    throw new IllegalArgumentException("Corrupt chunk data");
+                }
+                final byte[] packed = new byte[length];
+                in.readFully(packed);
+                board.packedChunks.put(key, packed);
+            }
+            return board;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Truncated endless board data", e);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.karmaflux.minesweeper.core;
+
+/**
+ * Short shareable code that identifies a game: board size, difficulty, free dig and seed.
+ * The board itself is never stored, it is regenerated from the seed.
+ * <p>
+ * Layout before encoding: one byte of freeDig << 7 | difficulty percent, varint sizeX,
+ * varint sizeY and the 8 seed bytes, written as Crockford base32 plus a check character.
+ */
+public final class GameCode {
+    // Board sizes a code may name, the same the menu offers. Anything else would not fit in
+    // memory or overflow the cell count, so decode() rejects it.
+    public static final int MIN_BOARD_SIZE = 4;
+    public static final int MAX_BOARD_SIZE = 1000;
+
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final int GROUP_LENGTH = 4;
+
+    private final int sizeX;
+    private final int sizeY;
+    private final int difficultyPercent;
+    private final boolean freeDig;
+    private final long seed;
+
+    public GameCode(int sizeX, int sizeY, float difficulty, boolean freeDig, long seed) {
+        if (sizeX <= 0 || sizeY <= 0) {
+            throw new IllegalArgumentException("Board size must be positive");
+        }
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.difficultyPercent = Math.max(0, Math.min(100, Math.round(difficulty * 100f)));
+        this.freeDig = freeDig;
+        this.seed = seed;
+    }
+
+    public static GameCode of(MineBoard board, boolean freeDig) {
+        return new GameCode(board.getSizeX(), board.getSizeY(), board.getDifficulty(), freeDig, board.getSeed());
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public float getDifficulty() {
+        return difficultyPercent / 100f;
+    }
+
+    public boolean isFreeDig() {
+        return freeDig;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The board this code stands for, cell for cell identical every time
+     */
+    public MineBoard createBoard() {
+        return new MineBoard(sizeX, sizeY, getDifficulty(), seed);
+    }
+
+    public String encode() {
+        final byte[] bytes = new byte[1 + 5 + 5 + 8];
+        int length = 0;
+        bytes[length++] = (byte) ((freeDig ? 0x80 : 0) | difficultyPercent);
+        length = writeVarint(bytes, length, sizeX);
+        length = writeVarint(bytes, length, sizeY);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[length++] = (byte) (seed >>> shift);
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        int buffer = 0;
+        int bits = 0;
+        int check = 0;
+        for (int i = 0; i < length; i++) {
+            buffer = (buffer << 8) | (bytes[i] & 0xFF);
+            bits += 8;
+            while (bits >= 5) {
+                bits -= 5;
+                final int symbol = (buffer >>> bits) & 31;
+                check = (check * 31 + symbol) % 37;
+                appendSymbol(sb, ALPHABET.charAt(symbol));
+            }
+        }
+        if (bits > 0) {
+            final int symbol = (buffer << (5 - bits)) & 31;
+            check = (check * 31 + symbol) % 37;
+            appendSymbol(sb, ALPHABET.charAt(symbol));
+        }
+        appendSymbol(sb, checkSymbol(check));
+        return sb.toString();
+    }
+
+    /**
+     * Parses a code made by encode(), ignoring case, spaces and dashes and accepting
+     * the usual Crockford misreadings (O for 0, I and L for 1)
+     *
+     * @throws IllegalArgumentException If the code is malformed or fails its check character
+     */
+    public static GameCode decode(String code) {
+        final StringBuilder symbols = new StringBuilder(code.length());
+        for (int i = 0; i < code.length(); i++) {
+            final char c = Character.toUpperCase(code.charAt(i));
+            if (c != '-' && !Character.isWhitespace(c)) {
+                symbols.append(c);
+            }
+        }
+        if (symbols.length() < 2) {
+            throw new IllegalArgumentException("Game code is too short");
+        }
+
+        final int dataLength = symbols.length() - 1;
+        final byte[] bytes = new byte[dataLength * 5 / 8];
+        int length = 0;
+        int buffer = 0;
+        int bits = 0;
+        int check = 0;
+        for (int i = 0; i < dataLength; i++) {
+            final int symbol = symbolValue(symbols.charAt(i));
+            if (symbol < 0 || symbol >= 32) {
+                throw new IllegalArgumentException("Invalid character in game code: " + symbols.charAt(i));
+            }
+            check = (check * 31 + symbol) % 37;
+            buffer = (buffer << 5) | symbol;
+            bits += 5;
+            if (bits >= 8) {
+                bits -= 8;
+                bytes[length++] = (byte) (buffer >>> bits);
+            }
+        }
+        if (symbolValue(symbols.charAt(dataLength)) != check) {
+            throw new IllegalArgumentException("Game code check character does not match");
+        }
+
+        final int[] position = {1};
+        if (length < 1 || (bytes[0] & 0x7F) > 100) {
+            throw new IllegalArgumentException("Invalid difficulty in game code");
+        }
+        final int sizeX = readVarint(bytes, length, position);
+        final int sizeY = readVarint(bytes, length, position);
+        if (!isValidSize(sizeX) || !isValidSize(sizeY)) {
+            throw new IllegalArgumentException("Invalid board size in game code");
+        }
+        if (length - position[0] != 8) {
+            throw new IllegalArgumentException("Game code has the wrong length");
+        }
+        long seed = 0;
+        for (int i = position[0]; i < length; i++) {
+            seed = (seed << 8) | (bytes[i] & 0xFF);
+        }
+        return new GameCode(sizeX, sizeY, (bytes[0] & 0x7F) / 100f, (bytes[0] & 0x80) != 0, seed);
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+
+    private static boolean isValidSize(int size) {
+        return size >= MIN_BOARD_SIZE && size <= MAX_BOARD_SIZE;
+    }
+
+    private static void appendSymbol(StringBuilder sb, char symbol) {
+        if (sb.length() % (GROUP_LENGTH + 1) == GROUP_LENGTH) {
+            sb.append('-');
+        }
+        sb.append(symbol);
+    }
+
+    // Crockford's check symbols: the 32 data symbols followed by * ~ $ = U
+    private static char checkSymbol(int check) {
+        return check < 32 ? ALPHABET.charAt(check) : "*~$=U".charAt(check - 32);
+    }
+
+    private static int symbolValue(char c) {
+        switch (c) {
+            case 'O':
+                return 0;
+            case 'I':
+            case 'L':
+                return 1;
+            default:
+                final int value = ALPHABET.indexOf(c);
+                return value >= 0 ? value : "*~$=U".indexOf(c) < 0 ? -1 : 32 + "*~$=U".indexOf(c);
+        }
+    }
+
+    private static int writeVarint(byte[] bytes, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return position;
+    }
+
+    private static int readVarint(byte[] bytes, int length, int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (position[0] >= length) {
+                throw new IllegalArgumentException("Game code is truncated");
+            }
+            final int b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value <= 0) {
+                    throw new IllegalArgumentException("Invalid board size in game code");
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid board size in game code");
+    }
+}
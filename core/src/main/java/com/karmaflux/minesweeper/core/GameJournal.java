@@ -0,0 +1,288 @@
+package com.karmaflux.minesweeper.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe autosave of the game in progress: a BoardCodec snapshot plus an append-only
+ * journal of the moves made since. All file work happens on a single background writer,
+ * the caller only queues a move. The writer replays every move on its own copy of the
+ * board, so it can compact the journal into a fresh snapshot without touching the game.
+ * <p>
+ * Snapshot file: generation (8 bytes), freeDig (1 byte), codec length (4 bytes), codec bytes,
+ * CRC32 of all before it (8 bytes). Journal file: generation (8 bytes), then 8 byte records of
+ * move and move ^ RECORD_CHECK. A journal whose generation does not match the snapshot predates
+ * it and is ignored, as is a torn record at its end.
+ */
+public final class GameJournal {
+    private static final int OP_DIG = 1;
+    private static final int OP_FLAG = 2;
+    private static final int OP_CHORD = 3;
+    private static final int INDEX_MASK = (1 << 30) - 1;
+    private static final int RECORD_CHECK = 0x5EED5EED;
+    private static final int JOURNAL_HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 8;
+    private static final int COMPACT_EVERY = 512;
+
+    /**
+     * A game read back from disk
+     */
+    public static final class SavedGame {
+        private final MineBoard board;
+        private final boolean freeDig;
+
+        SavedGame(MineBoard board, boolean freeDig) {
+            this.board = board;
+            this.freeDig = freeDig;
+        }
+
+        public MineBoard getBoard() {
+            return board;
+        }
+
+        public boolean isFreeDig() {
+            return freeDig;
+        }
+    }
+
+    private final File snapshotFile;
+    private final File snapshotTempFile;
+    private final File journalFile;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "GameJournal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Everything below is only touched by the writer thread
+    private final ByteBuffer record = ByteBuffer.allocateDirect(RECORD_SIZE);
+    private MineBoard shadow; // null while no game is journaled or after a write failed
+    private boolean freeDig;
+    private long generation;
+    private FileChannel journal;
+    private int movesSinceSnapshot;
+
+    public GameJournal(File directory) {
+        snapshotFile = new File(directory, "autosave.snapshot");
+        snapshotTempFile = new File(directory, "autosave.snapshot.tmp");
+        journalFile = new File(directory, "autosave.journal");
+    }
+
+    public boolean hasSavedGame() {
+        return snapshotFile.exists();
+    }
+
+    /**
+     * Starts journaling a game from the given board state, replacing any saved game
+     */
+    public void start(MineBoard board, boolean freeDig) {
+        final byte[] state = BoardCodec.encode(board);
+        writer.execute(() -> {
+            try {
+                this.shadow = BoardCodec.decode(state);
+                this.freeDig = freeDig;
+                writeSnapshot(state, readSnapshotGeneration() + 1);
+            } catch (IOException e) {
+                discard();
+            }
+        });
+    }
+
+    public void recordDig(int x, int y) {
+        record(OP_DIG, x, y);
+    }
+
+    public void recordFlag(int x, int y) {
+        record(OP_FLAG, x, y);
+    }
+
+    public void recordChord(int x, int y) {
+        record(OP_CHORD, x, y);
+    }
+
+    /**
+     * Deletes the saved game, for when the game is over
+     */
+    public void clear() {
+        writer.execute(this::discard);
+    }
+
+    /**
+     * Reads the saved game back, waiting for queued writes first
+     *
+     * @return The saved game with its journal replayed, or null if there is none or it is unreadable
+     */
+    public SavedGame restore() {
+        try {
+            return writer.submit(this::readSavedGame).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private void record(int op, int x, int y) {
+        writer.execute(() -> {
+            if (shadow == null) {
+                return;
+            }
+            final int move = (op << 30) | (y * shadow.getSizeX() + x);
+            try {
+                apply(shadow, op, x, y);
+                record.clear();
+                record.putInt(move).putInt(move ^ RECORD_CHECK).flip();
+                journal.write(record);
+
+                if (++movesSinceSnapshot >= COMPACT_EVERY) {
+                    writeSnapshot(BoardCodec.encode(shadow), generation + 1);
+                }
+            } catch (IOException e) {
+                discard();
+            }
+        });
+    }
+
+    // Writer thread: atomically replaces the snapshot, then starts an empty journal after it
+    private void writeSnapshot(byte[] state, long generation) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(8 + 1 + 4 + state.length + 8);
+        buffer.putLong(generation).put((byte) (freeDig ? 1 : 0)).putInt(state.length).put(state);
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue()).flip();
+        try (FileOutputStream out = new FileOutputStream(snapshotTempFile)) {
+            final FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        if (!snapshotTempFile.renameTo(snapshotFile)) {
+            throw new IOException("Could not replace " + snapshotFile);
+        }
+
+        if (journal == null) {
+            journal = new RandomAccessFile(journalFile, "rw").getChannel();
+        }
+        journal.truncate(0);
+        final ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+        header.putLong(generation).flip();
+        journal.write(header, 0);
+        journal.position(JOURNAL_HEADER_SIZE);
+        this.generation = generation;
+        movesSinceSnapshot = 0;
+    }
+
+    // Writer thread: stops journaling and drops the saved game
+    private void discard() {
+        shadow = null;
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ignored) {
+            }
+            journal = null;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        snapshotFile.delete();
+        //noinspection ResultOfMethodCallIgnored
+        journalFile.delete();
+    }
+
+    private long readSnapshotGeneration() {
+        try {
+            final ByteBuffer snapshot = readSnapshot();
+            return snapshot == null ? 0 : snapshot.getLong(0);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return The snapshot positioned after its generation, or null if missing or corrupt
+     */
+    private ByteBuffer readSnapshot() throws IOException {
+        if (!snapshotFile.exists()) {
+            return null;
+        }
+        final ByteBuffer buffer = readFile(snapshotFile);
+        if (buffer.remaining() < 8 + 1 + 4 + 8) {
+            return null;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.limit() - 8);
+        if (crc.getValue() != buffer.getLong(buffer.limit() - 8)) {
+            return null;
+        }
+        buffer.position(8);
+        return buffer;
+    }
+
+    private SavedGame readSavedGame() throws IOException {
+        final ByteBuffer snapshot = readSnapshot();
+        if (snapshot == null) {
+            return null;
+        }
+        final long snapshotGeneration = snapshot.getLong(0);
+        final boolean savedFreeDig = snapshot.get() != 0;
+        final byte[] state = new byte[snapshot.getInt()];
+        if (state.length != snapshot.remaining() - 8) {
+            return null;
+        }
+        snapshot.get(state);
+        final MineBoard board;
+        try {
+            board = BoardCodec.decode(state);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        if (journalFile.exists()) {
+            final ByteBuffer moves = readFile(journalFile);
+            if (moves.remaining() >= JOURNAL_HEADER_SIZE && moves.getLong() == snapshotGeneration) {
+                final int cellCount = board.getSizeX() * board.getSizeY();
+                while (moves.remaining() >= RECORD_SIZE) {
+                    final int move = moves.getInt();
+                    final int index = move & INDEX_MASK;
+                    if ((move ^ RECORD_CHECK) != moves.getInt() || index >= cellCount) {
+                        break; // torn or garbage tail
+                    }
+                    final int x = index % board.getSizeX();
+                    final int y = index / board.getSizeX();
+                    apply(board, move >>> 30, x, y);
+                }
+            }
+        }
+        return new SavedGame(board, savedFreeDig);
+    }
+
+    private static void apply(MineBoard board, int op, int x, int y) {
+        switch (op) {
+            case OP_DIG:
+                board.dig(x, y);
+                break;
+            case OP_CHORD:
+                board.chord(x, y);
+                break;
+            default:
+                board.flag(x, y);
+        }
+    }
+
+    private static ByteBuffer readFile(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            final byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return ByteBuffer.wrap(bytes);
+        }
+    }
+}
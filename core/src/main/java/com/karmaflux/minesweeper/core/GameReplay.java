@@ -0,0 +1,147 @@
+package com.karmaflux.minesweeper.core;
+
+/**
+ * Plays a MoveLog back on the board regenerated from its game code. Seeking restores the
+ * nearest earlier checkpoint, taken every CHECKPOINT_INTERVAL moves, and replays at most
+ * that many moves from it instead of the whole game.
+ * <p>
+ * After a seek the board's change set only covers the last replayed move, so a view
+ * should redraw the whole board.
+ */
+public final class GameReplay {
+    static final int CHECKPOINT_INTERVAL = 64;
+
+    private final GameCode gameCode;
+    private final MoveLog log;
+    private final MineBoard board;
+    // checkpoints[k] holds the state codes of every cell before move k * CHECKPOINT_INTERVAL
+    private final byte[][] checkpoints;
+    private int position;
+
+    public GameReplay(GameCode gameCode, MoveLog log) {
+        this.gameCode = gameCode;
+        this.log = log;
+        this.board = gameCode.createBoard();
+        if (gameCode.isFreeDig()) {
+            board.freeDig();
+        }
+
+        checkpoints = new byte[log.size() / CHECKPOINT_INTERVAL + 1][];
+        for (int k = 0; k < checkpoints.length; k++) {
+            seekForward(k * CHECKPOINT_INTERVAL);
+            checkpoints[k] = new byte[board.getSizeX() * board.getSizeY()];
+            board.copyStateCodes(checkpoints[k]);
+        }
+        seek(0);
+    }
+
+    /**
+     * @return The game code and the moves as one line of text, read back by decode()
+     */
+    public static String encode(GameCode gameCode, MoveLog log) {
+        return gameCode.encode() + "/" + log.encode();
+    }
+
+    /**
+     * Parses the text made by encode(), rejecting moves outside the board
+     *
+     * @throws IllegalArgumentException If the text is malformed
+     */
+    public static GameReplay decode(String text) {
+        final int slash = text.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Replay has no moves");
+        }
+        final GameCode gameCode = GameCode.decode(text.substring(0, slash));
+        final MoveLog log = MoveLog.decode(text.substring(slash + 1).trim());
+        final int cellCount = gameCode.getSizeX() * gameCode.getSizeY();
+        for (int i = 0; i < log.size(); i++) {
+            if (log.getCellIndex(i) >= cellCount) {
+                throw new IllegalArgumentException("Replay move outside the board");
+            }
+        }
+        return new GameReplay(gameCode, log);
+    }
+
+    public GameCode getGameCode() {
+        return gameCode;
+    }
+
+    public MineBoard getBoard() {
+        return board;
+    }
+
+    public int getMoveCount() {
+        return log.size();
+    }
+
+    /**
+     * @return Number of moves applied to the board so far
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public long getDurationMillis() {
+        return log.size() == 0 ? 0 : log.getTimeMillis(log.size() - 1);
+    }
+
+    /**
+     * Applies the next move
+     *
+     * @return False if the replay is already at the end
+     */
+    public boolean step() {
+        if (position >= log.size()) {
+            return false;
+        }
+        final int i = log.getCellIndex(position);
+        final int x = i % board.getSizeX();
+        final int y = i / board.getSizeX();
+        switch (log.getAction(position)) {
+            case MoveLog.FLAG:
+                board.flag(x, y);
+                break;
+            case MoveLog.CHORD:
+                board.chord(x, y);
+                break;
+            default:
+                board.dig(x, y);
+        }
+        position++;
+        return true;
+    }
+
+    /**
+     * Jumps to the state after the given number of moves, forwards or backwards
+     */
+    public void seek(int moveCount) {
+        moveCount = Math.max(0, Math.min(log.size(), moveCount));
+        final int checkpoint = moveCount / CHECKPOINT_INTERVAL;
+        if (moveCount < position || checkpoint > position / CHECKPOINT_INTERVAL) {
+            board.restoreStates(checkpoints[checkpoint]);
+            position = checkpoint * CHECKPOINT_INTERVAL;
+        }
+        seekForward(moveCount);
+    }
+
+    /**
+     * Applies every move made up to the given game time. Real time playback passes the elapsed
+     * time, N times speed passes it multiplied by N.
+     *
+     * @return Number of moves applied by this call
+     */
+    public int advanceTo(long timeMillis) {
+        final int start = position;
+        while (position < log.size() && log.getTimeMillis(position) <= timeMillis) {
+            step();
+        }
+        return position - start;
+    }
+
+    private void seekForward(int moveCount) {
+        while (position < moveCount) {
+            step();
+        }
+    }
+}
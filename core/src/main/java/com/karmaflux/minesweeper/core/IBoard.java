@@ -0,0 +1,41 @@
+package com.karmaflux.minesweeper.core;
+
+/**
+ * What the game view needs from a board: cell queries, moves and the cells the last move
+ * changed. Implemented by the bounded MineBoard and the unbounded EndlessBoard.
+ */
+public interface IBoard {
+    CellState getCellState(int x, int y);
+
+    int getAdjacentBombs(int x, int y);
+
+    /**
+     * @return True if uncovered a bomb, false otherwise
+     */
+    boolean dig(int x, int y);
+
+    /**
+     * @return True if uncovered a bomb, false otherwise
+     */
+    boolean chord(int x, int y);
+
+    void flag(int x, int y);
+
+    /**
+     * Uncovers a safe cell with the fewest adjacent bombs, to start the game
+     */
+    void freeDig();
+
+    /**
+     * @return Number of cells changed by the last dig, chord or flag
+     */
+    int getChangedCount();
+
+    int getChangedX(int i);
+
+    int getChangedY(int i);
+
+    int getFlagCount();
+
+    boolean checkWin();
+}
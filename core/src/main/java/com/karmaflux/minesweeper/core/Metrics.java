@@ -0,0 +1,79 @@
+package com.karmaflux.minesweeper.core;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings and counts from the hot paths: board generation, digs, flood fills, win checks and
+ * frames drawn. Always compiled in but off by default; while disabled every recording site
+ * costs one static boolean check and no clock read. Recording is lock-free and may happen from
+ * any thread.
+ */
+public final class Metrics {
+    private static volatile boolean enabled = false;
+
+    public static final LogHistogram GENERATION_NANOS = new LogHistogram();
+    public static final LogHistogram SOLVABLE_GENERATION_NANOS = new LogHistogram();
+    public static final LogHistogram DIG_NANOS = new LogHistogram();
+    public static final LogHistogram DIG_CELLS_OPENED = new LogHistogram();
+    public static final LogHistogram FLOOD_REGION_CELLS = new LogHistogram();
+    public static final LogHistogram CHECK_WIN_NANOS = new LogHistogram();
+    public static final LogHistogram FRAME_NANOS = new LogHistogram();
+    public static final LogHistogram FRAME_CELLS_DRAWN = new LogHistogram();
+
+    public static final AtomicLong DIGS = new AtomicLong();
+    public static final AtomicLong CELLS_OPENED = new AtomicLong();
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    public static void reset() {
+        GENERATION_NANOS.reset();
+        SOLVABLE_GENERATION_NANOS.reset();
+        DIG_NANOS.reset();
+        DIG_CELLS_OPENED.reset();
+        FLOOD_REGION_CELLS.reset();
+        CHECK_WIN_NANOS.reset();
+        FRAME_NANOS.reset();
+        FRAME_CELLS_DRAWN.reset();
+        DIGS.set(0);
+        CELLS_OPENED.set(0);
+    }
+
+    /**
+     * @return Every metric, one per line, times in microseconds
+     */
+    public static String dump() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "metrics %s, %d digs, %d cells opened%n",
+                enabled ? "enabled" : "disabled", DIGS.get(), CELLS_OPENED.get()));
+        appendTime(sb, "generate", GENERATION_NANOS);
+        appendTime(sb, "generate solvable", SOLVABLE_GENERATION_NANOS);
+        appendTime(sb, "dig", DIG_NANOS);
+        appendCount(sb, "dig cells opened", DIG_CELLS_OPENED);
+        appendCount(sb, "flood region cells", FLOOD_REGION_CELLS);
+        appendTime(sb, "check win", CHECK_WIN_NANOS);
+        appendTime(sb, "frame", FRAME_NANOS);
+        appendCount(sb, "frame cells drawn", FRAME_CELLS_DRAWN);
+        return sb.toString();
+    }
+
+    private static void appendTime(StringBuilder sb, String name, LogHistogram h) {
+        sb.append(String.format(Locale.US, "%-18s n=%-8d mean %.1fus p50 %.1fus p99 %.1fus max %.1fus%n", name,
+                h.getCount(), h.getMean() / 1e3, h.getPercentile(0.5) / 1e3, h.getPercentile(0.99) / 1e3,
+                h.getMax() / 1e3));
+    }
+
+    private static void appendCount(StringBuilder sb, String name, LogHistogram h) {
+        sb.append(String.format(Locale.US, "%-18s n=%-8d mean %.1f p50 %d p99 %d max %d%n", name,
+                h.getCount(), h.getMean(), h.getPercentile(0.5), h.getPercentile(0.99), h.getMax()));
+    }
+}
@@ -0,0 +1,974 @@
+package com.karmaflux.minesweeper.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class MineBoard implements Serializable, IBoard {
+    private static final long serialVersionUID = 1L;
+
+    // Every cell is packed into a single byte, stored row-major (index = y * sizeX + x):
+    // bits 0-3 hold the adjacent bomb count (0-8), bit 4 marks a bomb and bits 5-6 hold
+    // whether the cell is covered, flagged or uncovered.
+    private static final int ADJACENT_MASK = 0x0F;
+    private static final int BOMB_BIT = 0x10;
+    private static final int STATE_MASK = 0x60;
+    private static final int STATE_COVERED = 0x00;
+    private static final int STATE_FLAGGED = 0x20;
+    private static final int STATE_UNCOVERED = 0x40;
+
+    // Cross-check the live win counter against a full board scan, enabled in debug builds
+    private static boolean debugChecks = false;
+    // Compute adjacency and flood fills with BitBoard planes, see setBitBoards()
+    private static boolean bitBoards = false;
+    public static final int DEFAULT_PARALLEL_MIN_CELLS = 1 << 18;
+
+    // Boards with at least this many cells are generated on a fork/join pool
+    private static int parallelMinCells = DEFAULT_PARALLEL_MIN_CELLS;
+    // Rows per fork/join task, whole rows so tasks only meet at band borders
+    static final int BAND_ROWS = 32;
+    private static ForkJoinPool parallelPool;
+
+    private final byte[] cells;
+    private final int sizeX;
+    private final int sizeY;
+    private final int numBombs;
+    private final float difficulty;
+    private long seed;
+    private int remainingSafeCells;
+    private int flagCount;
+    private int freeDigCell = -1;
+    private int largestOpeningCell = -1;
+
+    // Cells changed by the last dig/flag, doubles as the flood fill queue. Sized to the
+    // board once so digging never allocates.
+    private transient int[] changedCells;
+    private transient int changedCount;
+    // Generation work arrays, kept after a regenerate() so the next one does not allocate
+    private transient int[] scratch;
+    private transient int[] openingSize;
+    // Zero regions labelled at generation: the region id + 1 of every zero cell (0 for the
+    // others), and each region's cells with their numbered border in regionCells from
+    // regionStart[id] to regionStart[id + 1]. Ids and cells are bit-packed, a few bytes per
+    // cell in all. Null after deserialization, digs then fall back to the BFS.
+    private transient PackedInts regionIds;
+    private transient int[] regionStart;
+    private transient PackedInts regionCells;
+    // Bit planes, null unless bit boards were on when the board was generated
+    private transient BitBoard bitBoard;
+    private transient long[] zeroPlane; // safe cells without adjacent bombs
+    private transient long[] regionPlane; // flood fill scratch, all clear between fills
+    private transient long[] openPlane; // flood fill scratch, all clear between fills
+
+    public MineBoard(int sizeX, int sizeY, float difficulty) {
+        this(sizeX, sizeY, difficulty, new Random().nextLong());
+    }
+
+    /**
+     * Generates the board determined by the seed, the same arguments always give the same board
+     */
+    public MineBoard(int sizeX, int sizeY, float difficulty, long seed) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.cells = new byte[sizeX * sizeY]; // all zero: covered, no bombs
+
+        this.difficulty = difficulty;
+        this.numBombs = estimateBombs(sizeX, sizeY, difficulty);
+        generate(seed);
+        scratch = null; // only boards that get regenerated keep them
+        openingSize = null;
+    }
+
+    // Bombs exactly at the given row-major cells, for tests that need a known position
+    private MineBoard(int sizeX, int sizeY, int[] bombCells) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.cells = new byte[sizeX * sizeY];
+        this.difficulty = (float) bombCells.length / cells.length;
+        this.numBombs = bombCells.length;
+        this.remainingSafeCells = cells.length - numBombs;
+        scratch = new int[cells.length];
+        openingSize = new int[cells.length];
+        for (int i : bombCells) {
+            cells[i] = BOMB_BIT;
+        }
+        countAdjacentBombs();
+        pickFreeDigCell(new SplitMix64(seed));
+        findLargestOpening();
+        scratch = null;
+        openingSize = null;
+    }
+
+    /**
+     * @param bombCells Row-major indices of the bombs, each at most once
+     */
+    static MineBoard withBombs(int sizeX, int sizeY, int... bombCells) {
+        return new MineBoard(sizeX, sizeY, bombCells);
+    }
+
+    /**
+     * Turns this board into the one new MineBoard(sizeX, sizeY, difficulty, seed) would make,
+     * reusing its arrays, for callers that play many games of the same size
+     */
+    public void regenerate(long seed) {
+        Arrays.fill(cells, (byte) 0);
+        flagCount = 0;
+        changedCount = 0;
+        generate(seed);
+    }
+
+    private void generate(long seed) {
+        final long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+        if (scratch == null) {
+            scratch = new int[cells.length];
+            openingSize = new int[cells.length];
+        }
+        this.seed = seed;
+        this.remainingSafeCells = cells.length - numBombs;
+        final SplitMix64 rng = new SplitMix64(seed);
+        placeBombs(rng);
+        countAdjacentBombs();
+
+        pickFreeDigCell(rng);
+        findLargestOpening();
+        if (Metrics.isEnabled()) {
+            Metrics.GENERATION_NANOS.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Places exactly numBombs bombs with a partial Fisher-Yates shuffle of the cell indices.
+     * Past half the board the safe cells are shuffled out instead, so the work never exceeds
+     * half the cells whatever the density.
+     */
+    private void placeBombs(SplitMix64 rng) {
+        final boolean placeSafeCells = numBombs > cells.length / 2;
+        final int picks = placeSafeCells ? cells.length - numBombs : numBombs;
+        if (placeSafeCells) {
+            Arrays.fill(cells, (byte) BOMB_BIT);
+        }
+
+        final int[] order = scratch;
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = 0; i < picks; i++) {
+            final int j = i + rng.nextInt(order.length - i);
+            final int picked = order[j];
+            order[j] = order[i];
+            order[i] = picked;
+            cells[picked] ^= BOMB_BIT;
+        }
+    }
+
+    /**
+     * Counts neighbouring bombs with a separable 3x3 box sum: each row's horizontal
+     * 3-cell sums are computed once, then three of them are added per cell. Parallel
+     * boards count each band of rows on its own task.
+     */
+    private void countAdjacentBombs() {
+        if (bitBoards) {
+            countAdjacentBombsBitwise();
+            return;
+        }
+        bitBoard = null;
+        if (isParallel()) {
+            forEachBand(this::countAdjacentBombs);
+        } else {
+            countAdjacentBombs(0, sizeY);
+        }
+    }
+
+    // Rows firstRow to endRow - 1, only reading the bomb bits of the rows either side
+    private void countAdjacentBombs(int firstRow, int endRow) {
+        byte[] above = new byte[sizeX];
+        byte[] row = new byte[sizeX];
+        byte[] below = new byte[sizeX];
+        if (firstRow > 0) {
+            rowSums(firstRow - 1, above);
+        }
+        rowSums(firstRow, row);
+        for (int y = firstRow; y < endRow; y++) {
+            if (y + 1 < sizeY) {
+                rowSums(y + 1, below);
+            } else {
+                Arrays.fill(below, (byte) 0);
+            }
+            final int offset = y * sizeX;
+            for (int x = 0; x < sizeX; x++) {
+                final int bomb = (cells[offset + x] & BOMB_BIT) >> 4;
+                cells[offset + x] |= above[x] + row[x] + below[x] - bomb; // don't count center cell
+            }
+            final byte[] recycled = above;
+            above = row;
+            row = below;
+            below = recycled;
+        }
+    }
+
+    /**
+     * Same counts from bit-sliced neighbour sums over the bomb plane, 64 cells per word
+     * operation. Also keeps the zero cell plane for bitwise flood fills.
+     */
+    private void countAdjacentBombsBitwise() {
+        if (bitBoard == null) {
+            bitBoard = new BitBoard(sizeX, sizeY);
+            zeroPlane = bitBoard.newPlane();
+            regionPlane = bitBoard.newPlane();
+            openPlane = bitBoard.newPlane();
+        }
+        final long[] bombs = openPlane; // borrowed, cleared again below
+        bitBoard.pack(cells, BOMB_BIT, BOMB_BIT, bombs);
+        final long[][] counts = {regionPlane, zeroPlane, new long[bombs.length], new long[bombs.length]};
+        bitBoard.neighbourCounts(bombs, counts);
+        bitBoard.unpackCounts(counts, cells);
+        Arrays.fill(regionPlane, 0L);
+        Arrays.fill(openPlane, 0L);
+        bitBoard.pack(cells, BOMB_BIT | ADJACENT_MASK, 0, zeroPlane);
+    }
+
+    private void rowSums(int y, byte[] sums) {
+        final int offset = y * sizeX;
+        int left = 0;
+        int center = (cells[offset] & BOMB_BIT) >> 4;
+        for (int x = 0; x < sizeX; x++) {
+            final int right = x + 1 < sizeX ? (cells[offset + x + 1] & BOMB_BIT) >> 4 : 0;
+            sums[x] = (byte) (left + center + right);
+            left = center;
+            center = right;
+        }
+    }
+
+    /**
+     * Buckets the safe cells by adjacency count and picks a random cell from the lowest
+     * non-empty bucket, so free digs don't always open in the same corner
+     */
+    private void pickFreeDigCell(SplitMix64 rng) {
+        freeDigCell = -1;
+        final int[] bucketStart = new int[10];
+        for (byte cell : cells) {
+            if ((cell & BOMB_BIT) == 0) {
+                bucketStart[(cell & ADJACENT_MASK) + 1]++;
+            }
+        }
+        for (int b = 1; b < bucketStart.length; b++) {
+            bucketStart[b] += bucketStart[b - 1];
+        }
+        final int[] bucketFill = bucketStart.clone();
+        final int[] cellsByAdjacency = scratch;
+        for (int i = 0; i < cells.length; i++) {
+            if ((cells[i] & BOMB_BIT) == 0) {
+                cellsByAdjacency[bucketFill[cells[i] & ADJACENT_MASK]++] = i;
+            }
+        }
+
+        for (int b = 0; b < 9; b++) {
+            final int size = bucketStart[b + 1] - bucketStart[b];
+            if (size > 0) {
+                freeDigCell = cellsByAdjacency[bucketStart[b] + rng.nextInt(size)];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Labels the regions of connected zero cells with a union-find, lists every region's
+     * cells and numbered border for digs, and keeps a cell of the region that opens the
+     * most cells. Parallel boards label each band of rows on its own task, then union
+     * across the band borders. Roots are always linked under the lower index, so either
+     * way every region ends up labelled with its first cell.
+     */
+    private void findLargestOpening() {
+        final int[] parent = scratch;
+        if (isParallel()) {
+            forEachBand(this::labelZeroRegions);
+            for (int y = BAND_ROWS; y < sizeY; y += BAND_ROWS) {
+                for (int x = 0; x < sizeX; x++) {
+                    if (parent[index(x, y)] >= 0) {
+                        unionAbove(parent, x, y);
+                    }
+                }
+            }
+        } else {
+            labelZeroRegions(0, sizeY);
+        }
+        // links only point to lower indices, so one pass in index order flattens every path
+        for (int i = 0; i < cells.length; i++) {
+            if (parent[i] >= 0) {
+                parent[i] = parent[parent[i]];
+            }
+        }
+
+        // roots count their region's opening size. Numbered cells are never roots, so their
+        // slots note the regions they border for the listing below: 0 none, root + 1 a
+        // single one, -1 several.
+        Arrays.fill(openingSize, 0);
+        final int[] regions = new int[4]; // 8-connected regions are never adjacent, a cell touches at most 4
+        int regionCount = 0;
+        for (int i = 0; i < cells.length; i++) {
+            if (parent[i] >= 0) {
+                openingSize[parent[i]]++;
+                if (parent[i] == i) {
+                    regionCount++;
+                }
+            } else if ((cells[i] & BOMB_BIT) == 0) {
+                // a numbered cell is opened once by each distinct zero region it touches
+                final int count = adjacentRegions(parent, i, regions);
+                for (int r = 0; r < count; r++) {
+                    openingSize[regions[r]]++;
+                }
+                openingSize[i] = count == 0 ? 0 : count == 1 ? regions[0] + 1 : -1;
+            }
+        }
+
+        // number the roots in index order, each region's slice of regionCells starting
+        // where the one before ends
+        if (regionStart == null || regionStart.length < regionCount + 1) {
+            regionStart = new int[regionCount + 1];
+        }
+        int largest = 0;
+        int listed = 0;
+        int id = 0;
+        largestOpeningCell = -1;
+        for (int i = 0; i < cells.length; i++) {
+            if (parent[i] != i) {
+                continue;
+            }
+            if (openingSize[i] > largest) {
+                largest = openingSize[i];
+                largestOpeningCell = i;
+            }
+            regionStart[id] = listed;
+            listed += openingSize[i];
+            openingSize[i] = id++; // root to region id from here on
+        }
+        regionStart[regionCount] = listed;
+        if (largestOpeningCell < 0) {
+            largestOpeningCell = freeDigCell; // no zero cells at all
+        }
+
+        if (regionIds == null || !regionIds.fits(cells.length, regionCount)) {
+            regionIds = new PackedInts(cells.length, regionCount);
+        }
+        for (int i = 0; i < cells.length; i++) {
+            if (parent[i] >= 0) {
+                parent[i] = openingSize[parent[i]];
+            }
+            regionIds.set(i, parent[i] + 1);
+        }
+        if (regionCells == null || !regionCells.fits(listed, cells.length - 1)) {
+            regionCells = new PackedInts(listed, cells.length - 1);
+        }
+        final int[] next = Arrays.copyOf(regionStart, regionCount);
+        for (int i = 0; i < cells.length; i++) {
+            if (parent[i] >= 0) {
+                regionCells.set(next[parent[i]]++, i);
+            } else if ((cells[i] & BOMB_BIT) == 0 && openingSize[i] > 0) {
+                regionCells.set(next[openingSize[openingSize[i] - 1]]++, i);
+            } else if ((cells[i] & BOMB_BIT) == 0 && openingSize[i] < 0) {
+                for (int r = adjacentRegions(parent, i, regions) - 1; r >= 0; r--) {
+                    regionCells.set(next[regions[r]]++, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the distinct labels of the zero cells around cell i
+     *
+     * @return Number of labels written to regions
+     */
+    private int adjacentRegions(int[] labels, int i, int[] regions) {
+        final int x = i % sizeX;
+        final int y = i / sizeX;
+        int count = 0;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++) {
+                final int label = labels[index(nx, ny)];
+                if (label < 0) {
+                    continue;
+                }
+                boolean seen = false;
+                for (int r = 0; r < count && !seen; r++) {
+                    seen = regions[r] == label;
+                }
+                if (!seen) {
+                    regions[count++] = label;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // Unions the zero cells of rows firstRow to endRow - 1 with each other
+    private void labelZeroRegions(int firstRow, int endRow) {
+        final int[] parent = scratch;
+        for (int i = index(0, firstRow); i < index(0, endRow); i++) {
+            parent[i] = isZero(i) ? i : -1;
+        }
+        for (int y = firstRow; y < endRow; y++) {
+            for (int x = 0; x < sizeX; x++) {
+                final int i = index(x, y);
+                if (parent[i] < 0) {
+                    continue;
+                }
+                // union with the zero neighbours already visited: left, up-left, up, up-right
+                if (x > 0 && parent[i - 1] >= 0) {
+                    union(parent, i, i - 1);
+                }
+                if (y > firstRow) {
+                    unionAbove(parent, x, y);
+                }
+            }
+        }
+    }
+
+    private void unionAbove(int[] parent, int x, int y) {
+        for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++) {
+            if (parent[index(nx, y - 1)] >= 0) {
+                union(parent, index(x, y), index(nx, y - 1));
+            }
+        }
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        final int rootA = find(parent, a);
+        final int rootB = find(parent, b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    private boolean isParallel() {
+        return cells.length >= parallelMinCells && sizeY > BAND_ROWS;
+    }
+
+    private interface IBandTask {
+        void run(int firstRow, int endRow);
+    }
+
+    // Halves a run of rows at band borders until a single band is left
+    private static final class BandAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IBandTask task;
+        private final int firstRow;
+        private final int endRow;
+
+        BandAction(IBandTask task, int firstRow, int endRow) {
+            this.task = task;
+            this.firstRow = firstRow;
+            this.endRow = endRow;
+        }
+
+        @Override
+        protected void compute() {
+            final int bands = (endRow - firstRow + BAND_ROWS - 1) / BAND_ROWS;
+            if (bands <= 1) {
+                task.run(firstRow, endRow);
+                return;
+            }
+            final int middle = firstRow + bands / 2 * BAND_ROWS;
+            invokeAll(new BandAction(task, firstRow, middle), new BandAction(task, middle, endRow));
+        }
+    }
+
+    /**
+     * Runs the task over every band of BAND_ROWS rows on the shared pool, band k starting at
+     * row k * BAND_ROWS, and waits for all of them
+     */
+    private void forEachBand(IBandTask task) {
+        final ForkJoinPool pool;
+        synchronized (MineBoard.class) {
+            if (parallelPool == null) {
+                parallelPool = new ForkJoinPool();
+            }
+            pool = parallelPool;
+        }
+        pool.invoke(new BandAction(task, 0, sizeY));
+    }
+
+    private boolean isZero(int i) {
+        return (cells[i] & (BOMB_BIT | ADJACENT_MASK)) == 0;
+    }
+
+    public static void setDebugChecks(boolean debugChecks) {
+        MineBoard.debugChecks = debugChecks;
+    }
+
+    /**
+     * Makes boards generated from now on count adjacent bombs and run their flood fills with
+     * BitBoard planes instead of per-cell loops. The boards and the cells opened are the same.
+     */
+    public static void setBitBoards(boolean bitBoards) {
+        MineBoard.bitBoards = bitBoards;
+    }
+
+    /**
+     * Boards with at least this many cells count adjacency and label their zero regions on a
+     * fork/join pool. The boards are the same.
+     */
+    public static void setParallelMinCells(int parallelMinCells) {
+        MineBoard.parallelMinCells = parallelMinCells;
+    }
+
+    public static int estimateBombs(int sizeX, int sizeY, float difficulty) {
+        return (int) (sizeX * sizeY * (difficulty * 0.75f + 0.05f));
+    }
+
+    private int index(int x, int y) {
+        return y * sizeX + x;
+    }
+
+    public CellState getCellState(int x, int y) {
+        final int cell = cells[index(x, y)];
+        final boolean bomb = (cell & BOMB_BIT) != 0;
+        switch (cell & STATE_MASK) {
+            case STATE_FLAGGED:
+                return bomb ? CellState.FLAGGED_BOMB : CellState.FLAGGED;
+            case STATE_UNCOVERED:
+                return bomb ? CellState.BOMB : CellState.UNCOVERED;
+            default:
+                return bomb ? CellState.COVERED_BOMB : CellState.COVERED;
+        }
+    }
+
+    /**
+     * @return The play state of the cell at the row-major index: 0 covered, 1 flagged, 2 uncovered
+     */
+    int getStateCode(int i) {
+        return (cells[i] & STATE_MASK) >>> 5;
+    }
+
+    void copyStateCodes(byte[] stateCodes) {
+        for (int i = 0; i < cells.length; i++) {
+            stateCodes[i] = (byte) ((cells[i] & STATE_MASK) >>> 5);
+        }
+    }
+
+    /**
+     * Overwrites the play state of every cell with codes from getStateCode() and recounts the
+     * live counters, bombs and adjacency stay as generated
+     */
+    void restoreStates(byte[] stateCodes) {
+        if (stateCodes.length != cells.length) {
+            throw new IllegalArgumentException("Expected " + cells.length + " cell states, got " + stateCodes.length);
+        }
+        remainingSafeCells = 0;
+        flagCount = 0;
+        for (int i = 0; i < cells.length; i++) {
+            final int code = stateCodes[i];
+            if (code < 0 || code > 2) {
+                throw new IllegalArgumentException("Invalid cell state " + code);
+            }
+            cells[i] = (byte) ((cells[i] & ~STATE_MASK) | (code << 5));
+            if (code == 1) {
+                flagCount++;
+            }
+            if (code != 2 && (cells[i] & BOMB_BIT) == 0) {
+                remainingSafeCells++;
+            }
+        }
+        changedCount = 0;
+    }
+
+    public int getAdjacentBombs(int x, int y) {
+        return cells[index(x, y)] & ADJACENT_MASK;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public float getDifficulty() {
+        return difficulty;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getNumBombs() {
+        return numBombs;
+    }
+
+    /**
+     * @return Number of non-bomb cells that still need to be uncovered to win
+     */
+    public int getRemainingSafeCells() {
+        return remainingSafeCells;
+    }
+
+    public int getFlagCount() {
+        return flagCount;
+    }
+
+    /**
+     * @return Number of cells changed by the last dig or flag
+     */
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    public int getChangedX(int i) {
+        return changedCells[i] % sizeX;
+    }
+
+    public int getChangedY(int i) {
+        return changedCells[i] / sizeX;
+    }
+
+    private void clearChanges() {
+        if (changedCells == null) {
+            changedCells = new int[sizeX * sizeY];
+        }
+        changedCount = 0;
+    }
+
+    private void uncover(int i) {
+        if ((cells[i] & STATE_MASK) == STATE_FLAGGED) {
+            flagCount--; // the flood fill also opens wrongly flagged cells
+        }
+        if ((cells[i] & BOMB_BIT) == 0) {
+            remainingSafeCells--;
+        }
+        cells[i] = (byte) ((cells[i] & ~STATE_MASK) | STATE_UNCOVERED);
+        changedCells[changedCount++] = i;
+    }
+
+    /**
+     * Uncovers the cell at x/y coordinates
+     *
+     * @return True if uncovered a bomb, false otherwise
+     */
+    public boolean dig(int x, int y) {
+        if (!Metrics.isEnabled()) {
+            return digCell(x, y);
+        }
+        final long start = System.nanoTime();
+        final boolean hitBomb = digCell(x, y);
+        recordDig(start);
+        return hitBomb;
+    }
+
+    private boolean digCell(int x, int y) {
+        clearChanges();
+        final int i = index(x, y);
+        if ((cells[i] & STATE_MASK) != STATE_COVERED) {
+            return false; // already uncovered or flagged, nothing to dig
+        }
+
+        uncover(i);
+        if ((cells[i] & BOMB_BIT) != 0) {
+            return true;
+        }
+        if ((cells[i] & ADJACENT_MASK) == 0) {
+            uncoverNeighbors(changedCount - 1);
+        }
+        return false;
+    }
+
+    private void recordDig(long start) {
+        Metrics.DIG_NANOS.record(System.nanoTime() - start);
+        Metrics.DIG_CELLS_OPENED.record(changedCount);
+        Metrics.DIGS.incrementAndGet();
+        Metrics.CELLS_OPENED.addAndGet(changedCount);
+    }
+
+    /**
+     * Chords the uncovered number at x/y: once as many flags surround it as its number, digs
+     * all of its other covered neighbours in one operation with one combined change set
+     *
+     * @return True if uncovered a bomb (a flag was misplaced), false otherwise
+     */
+    public boolean chord(int x, int y) {
+        if (!Metrics.isEnabled()) {
+            return chordCells(x, y);
+        }
+        final long start = System.nanoTime();
+        final boolean hitBomb = chordCells(x, y);
+        recordDig(start);
+        return hitBomb;
+    }
+
+    private boolean chordCells(int x, int y) {
+        clearChanges();
+        final int i = index(x, y);
+        final int adjacent = cells[i] & ADJACENT_MASK;
+        if ((cells[i] & STATE_MASK) != STATE_UNCOVERED || (cells[i] & BOMB_BIT) != 0 || adjacent == 0) {
+            return false;
+        }
+        final int left = Math.max(0, x - 1);
+        final int right = Math.min(sizeX - 1, x + 1);
+        final int top = Math.max(0, y - 1);
+        final int bottom = Math.min(sizeY - 1, y + 1);
+        int flags = 0;
+        for (int ny = top; ny <= bottom; ny++) {
+            for (int nx = left; nx <= right; nx++) {
+                if ((cells[index(nx, ny)] & STATE_MASK) == STATE_FLAGGED) {
+                    flags++;
+                }
+            }
+        }
+        if (flags != adjacent) {
+            return false;
+        }
+
+        boolean hitBomb = false;
+        for (int ny = top; ny <= bottom; ny++) {
+            for (int nx = left; nx <= right; nx++) {
+                final int n = index(nx, ny);
+                if ((cells[n] & STATE_MASK) == STATE_COVERED) {
+                    uncover(n);
+                    hitBomb |= (cells[n] & BOMB_BIT) != 0;
+                }
+            }
+        }
+        uncoverNeighbors(0); // opens the zero cells among them
+        return hitBomb;
+    }
+
+    /**
+     * Flood fills from the uncovered zero cell at changedCells[head], opening the "empty"
+     * zero cells and their borders. The changed cell list is used as the BFS queue: a cell
+     * is uncovered when it is queued, so its state doubles as the visited mark and nothing
+     * is allocated.
+     */
+    private void uncoverNeighbors(int head) {
+        if (bitBoard != null) {
+            uncoverNeighborsBitwise(head);
+            return;
+        }
+        if (regionIds != null) {
+            uncoverRegions(head);
+            return;
+        }
+        final int start = head;
+        while (head < changedCount) {
+            final int i = changedCells[head++];
+            if (!isZero(i)) {
+                continue; // border cell or a chorded bomb, uncovered but not expanded
+            }
+            final int x = i % sizeX;
+            final int y = i / sizeX;
+            final int left = Math.max(0, x - 1);
+            final int right = Math.min(sizeX - 1, x + 1);
+            final int top = Math.max(0, y - 1);
+            final int bottom = Math.min(sizeY - 1, y + 1);
+            for (int ny = top; ny <= bottom; ny++) {
+                for (int nx = left; nx <= right; nx++) {
+                    final int n = index(nx, ny);
+                    // neighbours of a zero cell are never bombs
+                    if ((cells[n] & STATE_MASK) != STATE_UNCOVERED) {
+                        uncover(n);
+                    }
+                }
+            }
+        }
+        if (Metrics.isEnabled()) {
+            Metrics.FLOOD_REGION_CELLS.record(changedCount - start);
+        }
+    }
+
+    /**
+     * The same flood fill from the regions labelled at generation: every zero cell queued
+     * from head opens its region's slice of regionCells in one pass, no queue and no search.
+     * Cells come out in the order they were listed, row by row.
+     */
+    private void uncoverRegions(int head) {
+        final int end = changedCount;
+        for (int q = head; q < end; q++) {
+            final int id = regionIds.get(changedCells[q]) - 1;
+            if (id < 0) {
+                continue;
+            }
+            for (int c = regionStart[id]; c < regionStart[id + 1]; c++) {
+                final int n = regionCells.get(c);
+                if ((cells[n] & STATE_MASK) != STATE_UNCOVERED) {
+                    uncover(n);
+                }
+            }
+            if (Metrics.isEnabled()) {
+                Metrics.FLOOD_REGION_CELLS.record(regionStart[id + 1] - regionStart[id]);
+            }
+        }
+    }
+
+    /**
+     * The same flood fill on bit planes: the zero cells queued from head seed a region that
+     * BitBoard grows through the zero plane, then the region dilated by one cell is uncovered.
+     * Cells come out in row order rather than breadth first.
+     */
+    private void uncoverNeighborsBitwise(int head) {
+        int first = sizeY;
+        int last = -1;
+        for (int q = head; q < changedCount; q++) {
+            final int i = changedCells[q];
+            if (isZero(i)) {
+                final int y = i / sizeX;
+                bitBoard.set(regionPlane, i % sizeX, y);
+                first = Math.min(first, y);
+                last = Math.max(last, y);
+            }
+        }
+        if (last < 0) {
+            return;
+        }
+        final long rows = bitBoard.fillRegion(zeroPlane, regionPlane, first, last);
+        first = (int) (rows >>> 32);
+        last = (int) rows;
+        final int openFirst = Math.max(0, first - 1);
+        final int openLast = Math.min(sizeY - 1, last + 1);
+        bitBoard.dilateRows(regionPlane, openPlane, openFirst, openLast);
+        for (int i = bitBoard.nextSetBit(openPlane, openFirst * sizeX);
+             i >= 0 && i < (openLast + 1) * sizeX; i = bitBoard.nextSetBit(openPlane, i + 1)) {
+            if ((cells[i] & STATE_MASK) != STATE_UNCOVERED) {
+                uncover(i);
+            }
+        }
+        bitBoard.clearRows(regionPlane, first, last);
+        bitBoard.clearRows(openPlane, openFirst, openLast);
+    }
+
+    /**
+     * Generates boards until one can be cleared from its free dig cell without guessing.
+     * Each attempt gets its own seed, so the result can still be regenerated from its getSeed().
+     *
+     * @return The solvable board, or null if the time budget ran out or the thread was
+     * interrupted before one was found
+     */
+    public static MineBoard generateSolvable(int sizeX, int sizeY, float difficulty, long seed, long timeBudgetMillis) {
+        final long startNanos = System.nanoTime();
+        final long deadline = startNanos + timeBudgetMillis * 1000000L;
+        final SplitMix64 attemptSeeds = new SplitMix64(seed);
+        final MineSolver solver = new MineSolver();
+        MineBoard board;
+        do {
+            board = new MineBoard(sizeX, sizeY, difficulty, attemptSeeds.nextLong());
+            final int start = board.findFreeDigCell();
+            if (start >= 0 && solver.isSolvable(board, start % sizeX, start / sizeX)) {
+                break;
+            }
+            board = null;
+        } while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted());
+        if (Metrics.isEnabled()) {
+            Metrics.SOLVABLE_GENERATION_NANOS.record(System.nanoTime() - startNanos);
+        }
+        return board;
+    }
+
+    public static MineBoard generateSolvable(int sizeX, int sizeY, float difficulty, long timeBudgetMillis) {
+        return generateSolvable(sizeX, sizeY, difficulty, new Random().nextLong(), timeBudgetMillis);
+    }
+
+    /**
+     * @return Row-major index of the cell freeDig() opens, or -1 if there are no safe cells
+     */
+    int findFreeDigCell() {
+        return freeDigCell;
+    }
+
+    /**
+     * Uncovers a cell for "free", a random one among those with the fewest adjacent bombs
+     */
+    public void freeDig() {
+        if (freeDigCell >= 0) {
+            dig(freeDigCell % sizeX, freeDigCell / sizeX);
+        }
+    }
+
+    /**
+     * Uncovers the cell whose zero region opens the most of the board, for the biggest
+     * possible start
+     */
+    public void freeDigLargestOpening() {
+        if (largestOpeningCell >= 0) {
+            dig(largestOpeningCell % sizeX, largestOpeningCell / sizeX);
+        }
+    }
+
+    public boolean checkWin() {
+        if (!Metrics.isEnabled()) {
+            return checkWinCounters();
+        }
+        final long start = System.nanoTime();
+        final boolean won = checkWinCounters();
+        Metrics.CHECK_WIN_NANOS.record(System.nanoTime() - start);
+        return won;
+    }
+
+    private boolean checkWinCounters() {
+        if (debugChecks) {
+            verifyCounters();
+        }
+        return remainingSafeCells == 0;
+    }
+
+    /**
+     * Recounts the board the slow way and fails if the live counters drifted
+     */
+    public void verifyCounters() {
+        int safeCells = 0;
+        int flags = 0;
+        for (byte cell : cells) {
+            if ((cell & BOMB_BIT) == 0 && (cell & STATE_MASK) != STATE_UNCOVERED) {
+                safeCells++;
+            }
+            if ((cell & STATE_MASK) == STATE_FLAGGED) {
+                flags++;
+            }
+        }
+        if (safeCells != remainingSafeCells || flags != flagCount
+                || checkWinFullScan() != (remainingSafeCells == 0)) {
+            throw new IllegalStateException("MineBoard counters out of sync: counted " + remainingSafeCells
+                    + " safe cells and " + flagCount + " flags, board has " + safeCells + " and " + flags);
+        }
+    }
+
+    public boolean checkWinFullScan() {
+        int uncovered = 0;
+        int bombs = 0;
+        for (byte cell : cells) {
+            if ((cell & BOMB_BIT) != 0) {
+                bombs++;
+            } else if ((cell & STATE_MASK) == STATE_UNCOVERED) {
+                uncovered++;
+            }
+        }
+
+        return sizeX * sizeY == uncovered + bombs;
+    }
+
+    public void flag(int x, int y) {
+        clearChanges();
+        final int i = index(x, y);
+        switch (cells[i] & STATE_MASK) {
+            case STATE_COVERED:
+                cells[i] = (byte) ((cells[i] & ~STATE_MASK) | STATE_FLAGGED);
+                changedCells[changedCount++] = i;
+                flagCount++;
+                break;
+            case STATE_FLAGGED:
+                cells[i] = (byte) ((cells[i] & ~STATE_MASK) | STATE_COVERED);
+                changedCells[changedCount++] = i;
+                flagCount--;
+                break;
+        }
+    }
+}
@@ -0,0 +1,845 @@
+package com.karmaflux.minesweeper.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Probability that each covered cell holds a mine, given the uncovered numbers and the
+ * total bomb count. Flags are ignored since the player may have placed them wrongly.
+ * <p>
+ * The frontier (covered cells next to a number) is split into independent components,
+ * each component's mine configurations are counted by backtracking, and components are
+ * combined with the cells off the frontier through binomial weights. Between moves on the
+ * same board only the components next to newly uncovered cells are rebuilt and counted
+ * again, the others are kept. Combining still spans every component, the bomb count ties
+ * them together.
+ * <p>
+ * Components too large to count are first narrowed down with the single cell and subset
+ * rules of MineSolver, which settle every cell those rules can prove. The cells left are
+ * counted in chunks of at most MAX_CHUNK_CELLS, each only held to the numbers it can
+ * still satisfy on its own, so their odds are an estimate while the settled ones are exact.
+ */
+public class MineProbability {
+    // Components past these limits are counted in smaller chunks instead
+    private static final int MAX_COMPONENT_CELLS = 64;
+    private static final long MAX_SEARCH_NODES = 1 << 18;
+    // Chunks are an estimate either way, smaller ones keep a move on a large board cheap
+    private static final int MAX_CHUNK_CELLS = 32;
+
+    private static final class Signature {
+        final int[] values; // component cells, then constraint cell/number pairs
+        final int hash;
+
+        Signature(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature && Arrays.equals(values, ((Signature) o).values);
+        }
+    }
+
+    private static final byte UNKNOWN = 0;
+    private static final byte SAFE = 1;
+    private static final byte MINE = 2;
+
+    private static final class Component {
+        int[] cells;
+        double[] ways; // configurations by mine count, scaled so the largest is 1
+        double[][] cellWays; // [mines][cell] configurations with a mine in that cell
+    }
+
+    // A connected set of frontier cells and how it was counted
+    private static final class Group {
+        int[] cells; // row-major
+        Signature signature;
+        Component[] parts;
+        int index; // position in groups
+    }
+
+    private MineBoard board;
+    private long boardSeed;
+    private int sizeX;
+    private int sizeY;
+    // what the board looked like at the last update, kept current from its change sets
+    private boolean[] open = new boolean[0]; // uncovered, numbers and exploded bombs
+    private int openCount;
+    private int openSafeCount;
+    private Group[] groupOf = new Group[0]; // null off the frontier
+    private final ArrayList<Group> groups = new ArrayList<>();
+    private int frontierCount;
+    private float[] frontierProbabilities = new float[0];
+    private float restProbability;
+
+    private int[] parent = new int[0];
+    private int[] localIndex = new int[0];
+    private int[] constraintIndex = new int[0]; // -1 outside enumerate()
+    private int[] affected = new int[0];
+    private int affectedCount;
+    private int[] numbers = new int[0];
+    private int[] mark = new int[0]; // mark[i] == stamp if i is already listed this update
+    private int stamp;
+    // a component counted whole is one part, a split one is its settled cells and its chunks.
+    // Holds the live groups, and during a rebuild the ones before it are looked up too.
+    private HashMap<Signature, Component[]> cache = new HashMap<>();
+    private HashMap<Signature, Component[]> previousCache;
+    private Component[] parts = new Component[16];
+    private double[] logFactorial = new double[]{0};
+    private int enumerated;
+
+    // backtracking state, cells and constraints are indices local to one component
+    private int[] componentCells;
+    private int[][] cellConstraints;
+    private int[][] constraintCells;
+    private byte[] known;
+    private int[] constraintValue;
+    private int[] constraintMines;
+    private int[] constraintUnassigned;
+    private boolean[] assignment;
+    private int[] order;
+    private long searchNodes;
+
+    /**
+     * @return Mine probability of the covered cell at x/y, -1 for uncovered cells
+     */
+    public float getProbability(int x, int y) {
+        final int i = x + y * sizeX;
+        if (open[i]) {
+            return -1f;
+        }
+        return groupOf[i] != null ? frontierProbabilities[i] : restProbability;
+    }
+
+    /**
+     * @return Number of components enumerated by the last update, the rest were kept
+     */
+    public int getEnumeratedComponents() {
+        return enumerated;
+    }
+
+    /**
+     * Brings the odds up to date with the board. Called after every move on the same board,
+     * only the components next to the cells the move uncovered are rebuilt. Anything else,
+     * a new or regenerated board or moves missed in between, rebuilds everything.
+     */
+    public void update(MineBoard board) {
+        enumerated = 0;
+        if (board != this.board || board.getSeed() != boardSeed
+                || board.getSizeX() != sizeX || board.getSizeY() != sizeY) {
+            rebuild(board);
+        } else if (!applyChanges(board)) {
+            return; // flags only, nothing the odds depend on
+        }
+        combine(board.getNumBombs());
+    }
+
+    private void rebuild(MineBoard board) {
+        this.board = board;
+        boardSeed = board.getSeed();
+        sizeX = board.getSizeX();
+        sizeY = board.getSizeY();
+        final int size = sizeX * sizeY;
+        if (open.length != size) {
+            open = new boolean[size];
+            groupOf = new Group[size];
+            frontierProbabilities = new float[size];
+            parent = new int[size];
+            localIndex = new int[size];
+            constraintIndex = new int[size];
+            Arrays.fill(constraintIndex, -1);
+            affected = new int[size];
+            numbers = new int[size];
+            mark = new int[size];
+            stamp = 0;
+        } else {
+            Arrays.fill(groupOf, null);
+        }
+        ensureLogFactorial(size);
+        groups.clear();
+        frontierCount = 0;
+        previousCache = cache;
+        cache = new HashMap<>();
+
+        openCount = 0;
+        affectedCount = 0;
+        int numberCount = 0;
+        for (int i = 0; i < size; i++) {
+            open[i] = !isCovered(board, i);
+            if (isNumber(board, i)) {
+                numbers[numberCount++] = i;
+            }
+            if (open[i]) {
+                openCount++;
+            } else {
+                affected[affectedCount++] = i;
+            }
+        }
+        openSafeCount = numberCount;
+        buildGroups(board, numberCount);
+        previousCache = null;
+    }
+
+    /**
+     * Applies the board's last change set, rebuilding the groups around every cell it uncovered
+     *
+     * @return False if it uncovered nothing
+     */
+    private boolean applyChanges(MineBoard board) {
+        stamp++;
+        affectedCount = 0;
+        int opened = 0;
+        for (int c = 0; c < board.getChangedCount(); c++) {
+            final int i = board.getChangedX(c) + board.getChangedY(c) * sizeX;
+            if (open[i] || isCovered(board, i)) {
+                continue;
+            }
+            open[i] = true;
+            openCount++;
+            openSafeCount += board.getCellState(i % sizeX, i / sizeX) == CellState.UNCOVERED ? 1 : 0;
+            opened++;
+            // the cell leaves the frontier, its covered neighbours gain a number
+            removeGroup(groupOf[i]);
+            for (int n : neighbours(i)) {
+                if (n >= 0 && !open[n]) {
+                    addAffected(n); // its group is taken apart below
+                }
+            }
+        }
+        if (openSafeCount != sizeX * sizeY - board.getNumBombs() - board.getRemainingSafeCells()) {
+            rebuild(board); // moves were made without an update, the change set is not enough
+            return true;
+        }
+        if (opened == 0) {
+            return false;
+        }
+        for (int a = 0; a < affectedCount; a++) {
+            removeGroup(groupOf[affected[a]]);
+        }
+
+        // the cells still covered, in row-major order so groups come out as a rebuild makes them
+        int kept = 0;
+        for (int a = 0; a < affectedCount; a++) {
+            if (!open[affected[a]]) {
+                affected[kept++] = affected[a];
+            }
+        }
+        affectedCount = kept;
+        Arrays.sort(affected, 0, affectedCount);
+
+        // every number next to them, once
+        stamp++;
+        int numberCount = 0;
+        for (int a = 0; a < affectedCount; a++) {
+            for (int n : neighbours(affected[a])) {
+                if (n >= 0 && mark[n] != stamp && isNumber(board, n)) {
+                    mark[n] = stamp;
+                    numbers[numberCount++] = n;
+                }
+            }
+        }
+        buildGroups(board, numberCount);
+        return true;
+    }
+
+    private void addAffected(int i) {
+        if (mark[i] != stamp) {
+            mark[i] = stamp;
+            affected[affectedCount++] = i;
+        }
+    }
+
+    private void removeGroup(Group group) {
+        if (group == null) {
+            return;
+        }
+        for (int cell : group.cells) {
+            groupOf[cell] = null;
+            addAffected(cell);
+        }
+        final Group last = groups.remove(groups.size() - 1);
+        if (last != group) {
+            groups.set(group.index, last);
+            last.index = group.index;
+        }
+        cache.remove(group.signature);
+        frontierCount -= group.cells.length;
+    }
+
+    /**
+     * Unions the covered cells listed in affected, in row-major order, through the numbers
+     * next to them and counts every group they form. A number next to one of them only
+     * touches listed cells, the groups it joined before were taken apart too.
+     *
+     * @param numberCount Number of cells in numbers, the uncovered numbers next to affected
+     */
+    private void buildGroups(MineBoard board, int numberCount) {
+        for (int a = 0; a < affectedCount; a++) {
+            parent[affected[a]] = -1;
+        }
+        for (int k = 0; k < numberCount; k++) {
+            int first = -1;
+            for (int n : neighbours(numbers[k])) {
+                if (n >= 0 && !open[n]) {
+                    if (parent[n] < 0) {
+                        parent[n] = n;
+                    }
+                    if (first < 0) {
+                        first = n;
+                    } else {
+                        union(first, n);
+                    }
+                }
+            }
+        }
+
+        // collect each root's cells, keeping row-major order inside each group
+        int groupCount = 0;
+        for (int a = 0; a < affectedCount; a++) {
+            final int cell = affected[a];
+            if (parent[cell] >= 0 && find(cell) == cell) {
+                localIndex[cell] = groupCount++;
+            }
+        }
+        final int[] groupSizes = new int[groupCount];
+        for (int a = 0; a < affectedCount; a++) {
+            final int cell = affected[a];
+            if (parent[cell] >= 0) {
+                groupSizes[localIndex[find(cell)]]++;
+            }
+        }
+        final int[][] cells = new int[groupCount][];
+        for (int g = 0; g < groupCount; g++) {
+            cells[g] = new int[groupSizes[g]];
+            groupSizes[g] = 0;
+        }
+        for (int a = 0; a < affectedCount; a++) {
+            final int cell = affected[a];
+            if (parent[cell] >= 0) {
+                final int g = localIndex[find(cell)];
+                cells[g][groupSizes[g]++] = cell;
+            }
+        }
+
+        for (int[] groupCells : cells) {
+            final Group group = new Group();
+            group.cells = groupCells;
+            group.signature = signature(board, groupCells);
+            group.parts = cache.get(group.signature);
+            if (group.parts == null && previousCache != null) {
+                group.parts = previousCache.get(group.signature);
+            }
+            if (group.parts == null) {
+                group.parts = enumerate(board, groupCells, group.signature);
+                enumerated++;
+            }
+            cache.put(group.signature, group.parts);
+            group.index = groups.size();
+            groups.add(group);
+            for (int cell : groupCells) {
+                groupOf[cell] = group;
+            }
+            frontierCount += groupCells.length;
+        }
+    }
+
+    /**
+     * Weighs every group against the others and the cells off the frontier. The bomb count
+     * ties all of them together, so this runs over every group whatever the move changed.
+     */
+    private void combine(int bombs) {
+        int count = 0;
+        for (Group group : groups) {
+            if (count + group.parts.length > parts.length) {
+                parts = Arrays.copyOf(parts, Math.max(parts.length * 2, count + group.parts.length));
+            }
+            System.arraycopy(group.parts, 0, parts, count, group.parts.length);
+            count += group.parts.length;
+        }
+        final Component[] components = parts;
+        final int rest = sizeX * sizeY - openCount - frontierCount;
+
+        // prefix[j] is the mine count distribution of components 0..j-1, suffix[j] of j..count-1
+        final double[][] prefix = new double[count + 1][];
+        final double[][] suffix = new double[count + 1][];
+        prefix[0] = new double[]{1};
+        suffix[count] = new double[]{1};
+        for (int j = 0; j < count; j++) {
+            prefix[j + 1] = convolve(prefix[j], components[j].ways);
+        }
+        for (int j = count - 1; j >= 0; j--) {
+            suffix[j] = convolve(components[j].ways, suffix[j + 1]);
+        }
+        final double[] total = prefix[count];
+
+        // weight of m frontier mines is the ways to put the other bombs on the rest cells
+        final double[] weight = new double[total.length];
+        double maxLog = Double.NEGATIVE_INFINITY;
+        for (int m = 0; m < total.length; m++) {
+            maxLog = Math.max(maxLog, logChoose(rest, bombs - m));
+        }
+        double z = 0;
+        double restMines = 0;
+        for (int m = 0; m < total.length; m++) {
+            final double log = logChoose(rest, bombs - m);
+            weight[m] = log == Double.NEGATIVE_INFINITY ? 0 : Math.exp(log - maxLog);
+            z += total[m] * weight[m];
+            restMines += total[m] * weight[m] * (bombs - m);
+        }
+
+        restProbability = rest > 0 && z > 0 ? (float) (restMines / z / rest) : 0f;
+        for (int j = 0; j < count; j++) {
+            final Component component = components[j];
+            final double[] others = convolve(prefix[j], suffix[j + 1]);
+            final double[] g = new double[component.ways.length];
+            for (int m = 0; m < g.length; m++) {
+                for (int o = 0; o < others.length && m + o < weight.length; o++) {
+                    g[m] += others[o] * weight[m + o];
+                }
+            }
+            for (int c = 0; c < component.cells.length; c++) {
+                double p = 0;
+                for (int m = 0; m < g.length; m++) {
+                    p += component.cellWays[m][c] * g[m];
+                }
+                frontierProbabilities[component.cells[c]] = z > 0 ? (float) (p / z) : 0f;
+            }
+        }
+    }
+
+    private Signature signature(MineBoard board, int[] cells) {
+        int constraints = 0;
+        for (int cell : cells) {
+            for (int n : neighbours(cell)) {
+                if (n >= 0 && isNumber(board, n)) {
+                    constraints++;
+                }
+            }
+        }
+        // constraints are collected per cell and may repeat, that's still a stable key
+        final int[] values = new int[cells.length + 1 + constraints * 2];
+        System.arraycopy(cells, 0, values, 0, cells.length);
+        values[cells.length] = -1;
+        int v = cells.length + 1;
+        for (int cell : cells) {
+            for (int n : neighbours(cell)) {
+                if (n >= 0 && isNumber(board, n)) {
+                    values[v++] = n;
+                    values[v++] = board.getAdjacentBombs(n % sizeX, n / sizeX);
+                }
+            }
+        }
+        return new Signature(values);
+    }
+
+    private Component[] enumerate(MineBoard board, int[] cells, Signature signature) {
+        final int k = cells.length;
+        for (int c = 0; c < k; c++) {
+            localIndex[cells[c]] = c;
+        }
+
+        // distinct constraint cells, in signature order
+        final int[] values = signature.values;
+        final int[] numberCells = new int[(values.length - k - 1) / 2];
+        int constraintCount = 0;
+        for (int v = k + 1; v < values.length; v += 2) {
+            if (constraintIndex[values[v]] < 0) {
+                constraintIndex[values[v]] = constraintCount;
+                numberCells[constraintCount++] = values[v];
+            }
+        }
+        for (int c = 0; c < constraintCount; c++) {
+            constraintIndex[numberCells[c]] = -1;
+        }
+
+        componentCells = cells;
+        constraintValue = new int[constraintCount];
+        constraintMines = new int[constraintCount];
+        constraintUnassigned = new int[constraintCount];
+        constraintCells = new int[constraintCount][];
+        final int[] cellConstraintCount = new int[k];
+        final int[] buffer = new int[8];
+        for (int c = 0; c < constraintCount; c++) {
+            final int cell = numberCells[c];
+            constraintValue[c] = board.getAdjacentBombs(cell % sizeX, cell / sizeX);
+            int count = 0;
+            for (int n : neighbours(cell)) {
+                if (n >= 0 && isCovered(board, n)) {
+                    buffer[count++] = localIndex[n];
+                    cellConstraintCount[localIndex[n]]++;
+                }
+            }
+            constraintCells[c] = Arrays.copyOf(buffer, count);
+            constraintUnassigned[c] = count;
+        }
+        cellConstraints = new int[k][];
+        for (int c = 0; c < k; c++) {
+            cellConstraints[c] = new int[cellConstraintCount[c]];
+            cellConstraintCount[c] = 0;
+        }
+        for (int c = 0; c < constraintCount; c++) {
+            for (int local : constraintCells[c]) {
+                cellConstraints[local][cellConstraintCount[local]++] = c;
+            }
+        }
+
+        known = new byte[k];
+        assignment = new boolean[k];
+        final int[] order = new int[k];
+        final int[] ends = new int[k];
+        searchOrder(order, ends);
+        if (k <= MAX_COMPONENT_CELLS) {
+            final Component whole = count(order, 0, k);
+            if (whole != null) {
+                return new Component[]{whole};
+            }
+        }
+
+        // too large to count whole: settle what the rules can prove, then count the rest in chunks
+        propagate();
+        final ArrayList<Component> parts = new ArrayList<>();
+        final Component settled = settledPart();
+        if (settled != null) {
+            parts.add(settled);
+        }
+        for (int c = 0; c < constraintCount; c++) {
+            for (int local : constraintCells[c]) {
+                if (known[local] == MINE) {
+                    constraintMines[c]++;
+                }
+                if (known[local] != UNKNOWN) {
+                    constraintUnassigned[c]--;
+                }
+            }
+        }
+        final int groupCount = searchOrder(order, ends);
+        for (int g = 0, from = 0; g < groupCount; from = ends[g++]) {
+            countChunks(order, from, ends[g], parts);
+        }
+        return parts.toArray(new Component[0]);
+    }
+
+    /**
+     * Orders the unsettled cells breadth first through shared constraints, so conflicts show
+     * up early in the search and chunks stay compact, one group of connected cells after another
+     *
+     * @return Number of groups, ends[g] is the end of group g in order
+     */
+    private int searchOrder(int[] order, int[] ends) {
+        final int k = componentCells.length;
+        final boolean[] queued = new boolean[k];
+        int groups = 0;
+        int head = 0;
+        int tail = 0;
+        for (int start = 0; start < k; start++) {
+            if (queued[start] || known[start] != UNKNOWN) {
+                continue;
+            }
+            queued[start] = true;
+            order[tail++] = start;
+            while (head < tail) {
+                final int c = order[head++];
+                for (int constraint : cellConstraints[c]) {
+                    for (int n : constraintCells[constraint]) {
+                        if (!queued[n] && known[n] == UNKNOWN) {
+                            queued[n] = true;
+                            order[tail++] = n;
+                        }
+                    }
+                }
+            }
+            ends[groups++] = tail;
+        }
+        return groups;
+    }
+
+    // halves a chunk until its search fits, a single cell always does
+    private void countChunks(int[] order, int from, int to, ArrayList<Component> parts) {
+        if (to - from <= MAX_CHUNK_CELLS) {
+            final Component chunk = count(order, from, to);
+            if (chunk != null) {
+                parts.add(chunk);
+                return;
+            }
+        }
+        final int middle = (from + to) >>> 1;
+        countChunks(order, from, middle, parts);
+        countChunks(order, middle, to, parts);
+    }
+
+    /**
+     * Counts the configurations of the cells order[from..to). Constraints that also cover
+     * cells outside the range only need to stay satisfiable, not satisfied.
+     *
+     * @return The counted cells, or null if the search ran past MAX_SEARCH_NODES
+     */
+    private Component count(int[] order, int from, int to) {
+        final int k = to - from;
+        final Component component = new Component();
+        component.cells = new int[k];
+        for (int c = 0; c < k; c++) {
+            component.cells[c] = componentCells[order[from + c]];
+        }
+        this.order = Arrays.copyOfRange(order, from, to);
+        component.ways = new double[k + 1];
+        component.cellWays = new double[k + 1][k];
+        searchNodes = 0;
+        search(component, 0, 0);
+        if (searchNodes > MAX_SEARCH_NODES) {
+            return null;
+        }
+
+        double max = 0;
+        for (double w : component.ways) {
+            max = Math.max(max, w);
+        }
+        if (max > 0) {
+            for (int m = 0; m <= k; m++) {
+                component.ways[m] /= max;
+                for (int c = 0; c < k; c++) {
+                    component.cellWays[m][c] /= max;
+                }
+            }
+        }
+        return component;
+    }
+
+    private void search(Component component, int position, int mines) {
+        if (++searchNodes > MAX_SEARCH_NODES) {
+            return;
+        }
+        if (position == order.length) {
+            component.ways[mines]++;
+            for (int c = 0; c < order.length; c++) {
+                if (assignment[order[c]]) {
+                    component.cellWays[mines][c]++;
+                }
+            }
+            return;
+        }
+
+        final int cell = order[position];
+        for (int mine = 0; mine <= 1; mine++) {
+            boolean valid = true;
+            for (int constraint : cellConstraints[cell]) {
+                constraintUnassigned[constraint]--;
+                constraintMines[constraint] += mine;
+                final int needed = constraintValue[constraint] - constraintMines[constraint];
+                valid &= needed >= 0 && needed <= constraintUnassigned[constraint];
+            }
+            if (valid) {
+                assignment[cell] = mine == 1;
+                search(component, position + 1, mines + mine);
+                assignment[cell] = false;
+            }
+            for (int constraint : cellConstraints[cell]) {
+                constraintUnassigned[constraint]++;
+                constraintMines[constraint] -= mine;
+            }
+        }
+    }
+
+    /**
+     * Applies the single cell rule (a number with all its mines found or all its unknown
+     * cells needed) and the subset rule (a number whose unknown cells all touch another
+     * number too) until neither settles another cell
+     */
+    private void propagate() {
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (int a = 0; a < constraintCells.length; a++) {
+                final int unknownA = unknownCount(a);
+                if (unknownA == 0) {
+                    continue;
+                }
+                final int remainingA = remainingMines(a);
+                if (remainingA == 0 || remainingA == unknownA) {
+                    settle(a, -1, remainingA == 0 ? SAFE : MINE);
+                    progress = true;
+                    continue;
+                }
+                for (int cell : constraintCells[a]) {
+                    if (known[cell] != UNKNOWN) {
+                        continue;
+                    }
+                    for (int b : cellConstraints[cell]) {
+                        if (b == a || !isUnknownSubset(a, b)) {
+                            continue;
+                        }
+                        final int extraCells = unknownCount(b) - unknownA;
+                        final int extraMines = remainingMines(b) - remainingA;
+                        if (extraCells > 0 && (extraMines == 0 || extraMines == extraCells)) {
+                            settle(b, a, extraMines == 0 ? SAFE : MINE);
+                            progress = true;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int unknownCount(int constraint) {
+        int count = 0;
+        for (int cell : constraintCells[constraint]) {
+            if (known[cell] == UNKNOWN) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int remainingMines(int constraint) {
+        int mines = constraintValue[constraint];
+        for (int cell : constraintCells[constraint]) {
+            if (known[cell] == MINE) {
+                mines--;
+            }
+        }
+        return mines;
+    }
+
+    private boolean isUnknownSubset(int a, int b) {
+        for (int cell : constraintCells[a]) {
+            if (known[cell] == UNKNOWN && !contains(constraintCells[b], cell)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // marks the unknown cells of constraint, except those of constraint except
+    private void settle(int constraint, int except, byte value) {
+        for (int cell : constraintCells[constraint]) {
+            if (known[cell] == UNKNOWN && (except < 0 || !contains(constraintCells[except], cell))) {
+                known[cell] = value;
+            }
+        }
+    }
+
+    private static boolean contains(int[] cells, int cell) {
+        for (int c : cells) {
+            if (c == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The cells settled by propagate() as a part with a single configuration,
+     * or null if it settled none
+     */
+    private Component settledPart() {
+        int count = 0;
+        int mines = 0;
+        for (byte value : known) {
+            if (value != UNKNOWN) {
+                count++;
+                mines += value == MINE ? 1 : 0;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        final Component component = new Component();
+        component.cells = new int[count];
+        component.ways = new double[mines + 1];
+        component.cellWays = new double[mines + 1][count];
+        component.ways[mines] = 1;
+        for (int c = 0, i = 0; c < known.length; c++) {
+            if (known[c] != UNKNOWN) {
+                component.cells[i] = componentCells[c];
+                component.cellWays[mines][i] = known[c] == MINE ? 1 : 0;
+                i++;
+            }
+        }
+        return component;
+    }
+
+    private static double[] convolve(double[] a, double[] b) {
+        final double[] result = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == 0) {
+                continue;
+            }
+            for (int j = 0; j < b.length; j++) {
+                result[i + j] += a[i] * b[j];
+            }
+        }
+        return result;
+    }
+
+    private void ensureLogFactorial(int n) {
+        if (logFactorial.length > n) {
+            return;
+        }
+        final int from = logFactorial.length;
+        logFactorial = Arrays.copyOf(logFactorial, n + 1);
+        for (int i = from; i <= n; i++) {
+            logFactorial[i] = logFactorial[i - 1] + Math.log(i);
+        }
+    }
+
+    private double logChoose(int n, int k) {
+        if (k < 0 || k > n) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return logFactorial[n] - logFactorial[k] - logFactorial[n - k];
+    }
+
+    private final int[] neighbourBuffer = new int[8];
+
+    /**
+     * @return The 8 neighbours of cell i, -1 for those off the board. Reuses one buffer,
+     * so loops over it must not nest.
+     */
+    private int[] neighbours(int i) {
+        final int x = i % sizeX;
+        final int y = i / sizeX;
+        int n = 0;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (dx == 0 && dy == 0) {
+                    continue;
+                }
+                final int nx = x + dx;
+                final int ny = y + dy;
+                neighbourBuffer[n++] = nx >= 0 && nx < sizeX && ny >= 0 && ny < sizeY ? nx + ny * sizeX : -1;
+            }
+        }
+        return neighbourBuffer;
+    }
+
+    private boolean isCovered(MineBoard board, int i) {
+        final CellState state = board.getCellState(i % sizeX, i / sizeX);
+        return state != CellState.UNCOVERED && state != CellState.BOMB;
+    }
+
+    private boolean isNumber(MineBoard board, int i) {
+        return board.getCellState(i % sizeX, i / sizeX) == CellState.UNCOVERED;
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(int a, int b) {
+        final int rootA = find(a);
+        final int rootB = find(b);
+        if (rootA != rootB) {
+            parent[rootA] = rootB;
+        }
+    }
+}
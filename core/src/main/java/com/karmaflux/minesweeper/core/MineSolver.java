@@ -0,0 +1,305 @@
+package com.karmaflux.minesweeper.core;
+
+import java.util.Arrays;
+
+/**
+ * Deterministic solver that plays a board using only what a player could see, to tell
+ * whether it can be cleared from a starting cell without ever guessing.
+ * <p>
+ * Deductions, cheapest first: the single cell rule (a number whose remaining mines equal
+ * zero or its unknown neighbour count), the pairwise subset rule between numbers up to
+ * two cells apart, and the global mine count. Scratch arrays are kept between calls so
+ * generation retries don't allocate.
+ */
+public class MineSolver {
+    private static final byte UNKNOWN = 0;
+    private static final byte SAFE = 1;
+    private static final byte MINE = 2;
+
+    // Neighbourhoods are compared as bit masks over a 7x7 window around an anchor cell,
+    // wide enough for the neighbours of any number up to two cells from the anchor.
+    private static final int WINDOW = 7;
+    private static final int WINDOW_CENTER = 3;
+
+    private int sizeX;
+    private int sizeY;
+    private MineBoard board;
+    private byte[] known = new byte[0];
+    private int[] pending = new int[0]; // stack of uncovered cells to (re)check
+    private boolean[] isPending = new boolean[0];
+    private int pendingCount;
+    private int safeLeft;
+    private int minesLeft;
+    private int unknownCount;
+
+    /**
+     * @return True if every safe cell of the board can be deduced starting from a dig at x/y
+     */
+    public boolean isSolvable(MineBoard board, int startX, int startY) {
+        reset(board);
+        if (board.getCellState(startX, startY) == CellState.COVERED_BOMB) {
+            return false;
+        }
+        reveal(startX + startY * sizeX);
+
+        while (safeLeft > 0) {
+            if (applySingleCellRules()) {
+                continue;
+            }
+            if (applySubsetRules()) {
+                continue;
+            }
+            if (!applyGlobalCountRule()) {
+                return false; // stuck, the player would have to guess
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return True if the last isSolvable() call deduced the cell at x/y safe
+     */
+    boolean isDeducedSafe(int x, int y) {
+        return known[x + y * sizeX] == SAFE;
+    }
+
+    /**
+     * @return True if the last isSolvable() call deduced a mine at x/y
+     */
+    boolean isDeducedMine(int x, int y) {
+        return known[x + y * sizeX] == MINE;
+    }
+
+    private void reset(MineBoard board) {
+        this.board = board;
+        sizeX = board.getSizeX();
+        sizeY = board.getSizeY();
+        final int size = sizeX * sizeY;
+        if (known.length < size) {
+            known = new byte[size];
+            pending = new int[size];
+            isPending = new boolean[size];
+        } else {
+            Arrays.fill(known, 0, size, UNKNOWN);
+            Arrays.fill(isPending, 0, size, false);
+        }
+        pendingCount = 0;
+        minesLeft = board.getNumBombs();
+        safeLeft = size - minesLeft;
+        unknownCount = size;
+    }
+
+    private int adjacent(int i) {
+        return board.getAdjacentBombs(i % sizeX, i / sizeX);
+    }
+
+    /**
+     * Marks a cell safe the way a dig would, opening zero cells around it
+     */
+    private void reveal(int start) {
+        if (known[start] != UNKNOWN) {
+            return;
+        }
+        known[start] = SAFE;
+        safeLeft--;
+        unknownCount--;
+        final int queueStart = pendingCount;
+        push(start);
+        // zero cells are expanded breadth first straight out of the pending stack
+        for (int q = queueStart; q < pendingCount; q++) {
+            final int i = pending[q];
+            if (adjacent(i) != 0) {
+                continue;
+            }
+            final int x = i % sizeX;
+            final int y = i / sizeX;
+            for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ny++) {
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++) {
+                    final int n = nx + ny * sizeX;
+                    if (known[n] == UNKNOWN) {
+                        known[n] = SAFE;
+                        safeLeft--;
+                        unknownCount--;
+                        push(n);
+                    }
+                }
+            }
+        }
+    }
+
+    private void markMine(int i) {
+        if (known[i] != UNKNOWN) {
+            return;
+        }
+        known[i] = MINE;
+        minesLeft--;
+        unknownCount--;
+        // numbers around a new mine may now be satisfied
+        final int x = i % sizeX;
+        final int y = i / sizeX;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++) {
+                final int n = nx + ny * sizeX;
+                if (known[n] == SAFE) {
+                    push(n);
+                }
+            }
+        }
+    }
+
+    private void push(int i) {
+        if (!isPending[i]) {
+            isPending[i] = true;
+            pending[pendingCount++] = i;
+        }
+    }
+
+    private boolean applySingleCellRules() {
+        boolean progress = false;
+        while (pendingCount > 0) {
+            final int i = pending[--pendingCount];
+            isPending[i] = false;
+            final long unknown = unknownMask(i, i);
+            if (unknown == 0) {
+                continue;
+            }
+            final int mines = adjacent(i) - mineCount(i);
+            if (mines == 0) {
+                revealMask(i, unknown);
+                progress = true;
+            } else if (mines == Long.bitCount(unknown)) {
+                markMineMask(i, unknown);
+                progress = true;
+            }
+        }
+        return progress;
+    }
+
+    /**
+     * Compares every pair of frontier numbers at most two cells apart. With A and B the
+     * unknown cells only next to a or only next to b, mines(B) - mines(A) equals the
+     * difference of their remaining mine counts; if that difference is |B| then B is all
+     * mines and A is all safe, and symmetrically for |A|.
+     */
+    private boolean applySubsetRules() {
+        boolean progress = false;
+        for (int a = 0; a < sizeX * sizeY; a++) {
+            if (known[a] != SAFE) {
+                continue;
+            }
+            final long unknownA = unknownMask(a, a);
+            if (unknownA == 0) {
+                continue;
+            }
+            final int ax = a % sizeX;
+            final int ay = a / sizeX;
+            final int remainingA = adjacent(a) - mineCount(a);
+            if (deducePairs(a, ax, ay, unknownA, remainingA)) {
+                progress = true; // a's neighbourhood changed, move on and revisit next pass
+            }
+        }
+        return progress;
+    }
+
+    private boolean deducePairs(int a, int ax, int ay, long unknownA, int remainingA) {
+        for (int by = Math.max(0, ay - 2); by <= Math.min(sizeY - 1, ay + 2); by++) {
+            for (int bx = Math.max(0, ax - 2); bx <= Math.min(sizeX - 1, ax + 2); bx++) {
+                final int b = bx + by * sizeX;
+                if (b == a || known[b] != SAFE) {
+                    continue;
+                }
+                final long unknownB = unknownMask(b, a);
+                if (unknownB == 0 || (unknownA & unknownB) == 0) {
+                    continue;
+                }
+                final long onlyA = unknownA & ~unknownB;
+                final long onlyB = unknownB & ~unknownA;
+                if ((onlyA | onlyB) == 0) {
+                    continue;
+                }
+                final int diff = adjacent(b) - mineCount(b) - remainingA;
+                if (diff == Long.bitCount(onlyB)) {
+                    markMineMask(a, onlyB);
+                    revealMask(a, onlyA);
+                    return true;
+                }
+                if (-diff == Long.bitCount(onlyA)) {
+                    markMineMask(a, onlyA);
+                    revealMask(a, onlyB);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean applyGlobalCountRule() {
+        if (unknownCount == 0 || (minesLeft != 0 && minesLeft != unknownCount)) {
+            return false;
+        }
+        final boolean allMines = minesLeft != 0;
+        for (int i = 0; i < sizeX * sizeY; i++) {
+            if (known[i] == UNKNOWN) {
+                if (allMines) {
+                    markMine(i);
+                } else {
+                    reveal(i);
+                }
+            }
+        }
+        return true;
+    }
+
+    private int mineCount(int i) {
+        final int x = i % sizeX;
+        final int y = i / sizeX;
+        int mines = 0;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++) {
+                if (known[nx + ny * sizeX] == MINE) {
+                    mines++;
+                }
+            }
+        }
+        return mines;
+    }
+
+    /**
+     * @return The unknown neighbours of cell i as bits of the window centered on anchor
+     */
+    private long unknownMask(int i, int anchor) {
+        final int x = i % sizeX;
+        final int y = i / sizeX;
+        final int offsetX = WINDOW_CENTER - anchor % sizeX;
+        final int offsetY = WINDOW_CENTER - anchor / sizeX;
+        long mask = 0;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++) {
+                if (known[nx + ny * sizeX] == UNKNOWN) {
+                    mask |= 1L << ((ny + offsetY) * WINDOW + nx + offsetX);
+                }
+            }
+        }
+        return mask;
+    }
+
+    private int maskToCell(int anchor, int bit) {
+        final int x = anchor % sizeX + bit % WINDOW - WINDOW_CENTER;
+        final int y = anchor / sizeX + bit / WINDOW - WINDOW_CENTER;
+        return x + y * sizeX;
+    }
+
+    private void revealMask(int anchor, long mask) {
+        while (mask != 0) {
+            reveal(maskToCell(anchor, Long.numberOfTrailingZeros(mask)));
+            mask &= mask - 1;
+        }
+    }
+
+    private void markMineMask(int anchor, long mask) {
+        while (mask != 0) {
+            markMine(maskToCell(anchor, Long.numberOfTrailingZeros(mask)));
+            mask &= mask - 1;
+        }
+    }
+}
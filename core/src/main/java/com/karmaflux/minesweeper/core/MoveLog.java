@@ -0,0 +1,114 @@
+package com.karmaflux.minesweeper.core;
+
+import java.util.Arrays;
+
+/**
+ * Compact record of every move in a game, one long per move: milliseconds since the start
+ * in the high 32 bits, the action in the next 2 and the row-major cell index in the low 30.
+ * Backed by a growing long[], so recording never allocates per move.
+ */
+public final class MoveLog {
+    public static final int DIG = 1;
+    public static final int FLAG = 2;
+    public static final int CHORD = 3;
+
+    private static final int INDEX_MASK = (1 << 30) - 1;
+
+    private long[] moves;
+    private int size;
+
+    public MoveLog() {
+        moves = new long[64];
+    }
+
+    private MoveLog(long[] moves) {
+        this.moves = moves;
+        this.size = moves.length;
+    }
+
+    /**
+     * @param timeMillis Milliseconds since the start of the game
+     */
+    public void add(long timeMillis, int action, int cellIndex) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = (timeMillis << 32) | ((long) action << 30) | cellIndex;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTimeMillis(int i) {
+        return moves[i] >>> 32;
+    }
+
+    public int getAction(int i) {
+        return (int) (moves[i] >>> 30) & 3;
+    }
+
+    public int getCellIndex(int i) {
+        return (int) moves[i] & INDEX_MASK;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    public static MoveLog fromArray(long[] moves) {
+        return new MoveLog(moves.clone());
+    }
+
+    /**
+     * Text form for sharing, one "delay.move" pair per move joined by dashes, both base 36:
+     * the milliseconds since the previous move and the cell index times four plus the action
+     */
+    public String encode() {
+        final StringBuilder sb = new StringBuilder(size * 6);
+        long previousMillis = 0;
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append('-');
+            }
+            sb.append(Long.toString(getTimeMillis(i) - previousMillis, 36))
+                    .append('.')
+                    .append(Long.toString(((long) getCellIndex(i) << 2) | getAction(i), 36));
+            previousMillis = getTimeMillis(i);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parses the text made by encode()
+     *
+     * @throws IllegalArgumentException If the text is malformed
+     */
+    public static MoveLog decode(String text) {
+        final MoveLog log = new MoveLog();
+        if (text.isEmpty()) {
+            return log;
+        }
+        long timeMillis = 0;
+        for (String move : text.split("-")) {
+            final int dot = move.indexOf('.');
+            if (dot < 0) {
+                throw new IllegalArgumentException("Invalid move: " + move);
+            }
+            final long delay;
+            final long packed;
+            try {
+                delay = Long.parseLong(move.substring(0, dot), 36);
+                packed = Long.parseLong(move.substring(dot + 1), 36);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid move: " + move, e);
+            }
+            timeMillis += delay;
+            if (delay < 0 || timeMillis > 0xFFFFFFFFL || (packed & 3) == 0 || packed < 0 || (packed >> 2) > INDEX_MASK) {
+                throw new IllegalArgumentException("Invalid move: " + move);
+            }
+            log.add(timeMillis, (int) (packed & 3), (int) (packed >> 2));
+        }
+        return log;
+    }
+}
@@ -0,0 +1,52 @@
+package com.karmaflux.minesweeper.core;
+
+/**
+ * Fixed-size array of non-negative ints stored with only as many bits each as the largest
+ * value it was made for, packed back to back into longs
+ */
+final class PackedInts {
+    private final int size;
+    private final int bits;
+    private final long mask;
+    private final long[] words;
+
+    PackedInts(int size, int maxValue) {
+        this.size = size;
+        this.bits = bitsFor(maxValue);
+        this.mask = (1L << bits) - 1;
+        this.words = new long[(int) (((long) size * bits + 63) >>> 6)];
+    }
+
+    /**
+     * @return True if this array can hold size values up to maxValue, so it can be reused
+     */
+    boolean fits(int size, int maxValue) {
+        return size <= this.size && bitsFor(maxValue) <= bits;
+    }
+
+    int get(int i) {
+        final long bit = (long) i * bits;
+        final int word = (int) (bit >>> 6);
+        final int shift = (int) bit & 63;
+        long value = words[word] >>> shift;
+        if (shift + bits > 64) {
+            value |= words[word + 1] << (64 - shift);
+        }
+        return (int) (value & mask);
+    }
+
+    void set(int i, int value) {
+        final long bit = (long) i * bits;
+        final int word = (int) (bit >>> 6);
+        final int shift = (int) bit & 63;
+        words[word] = (words[word] & ~(mask << shift)) | ((long) value << shift);
+        if (shift + bits > 64) {
+            final int spilled = 64 - shift;
+            words[word + 1] = (words[word + 1] & ~(mask >>> spilled)) | ((long) value >>> spilled);
+        }
+    }
+
+    private static int bitsFor(int maxValue) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(maxValue));
+    }
+}
@@ -0,0 +1,38 @@
+package com.karmaflux.minesweeper.core;
+
+/**
+ * Small, fast and splittable PRNG (Steele, Lea and Flood's SplitMix64). Unlike
+ * java.util.Random its whole state is one long, so a 64-bit seed fully determines
+ * every board generated from it.
+ */
+public final class SplitMix64 {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    public SplitMix64(long seed) {
+        this.state = seed;
+    }
+
+    public long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return A value in [0, bound), bound must be positive
+     */
+    public int nextInt(int bound) {
+        // multiply-shift of the top 32 bits, no division and no modulo bias worth noticing
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * @return A new generator whose stream is independent of this one
+     */
+    public SplitMix64 split() {
+        return new SplitMix64(nextLong());
+    }
+}
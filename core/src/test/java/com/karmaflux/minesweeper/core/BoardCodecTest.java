@@ -0,0 +1,138 @@
+package com.karmaflux.minesweeper.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BoardCodecTest {
+    private static final int FLAG_RLE = 0x01;
+
+    /**
+     * A board just opened is long runs of covered cells and is run-length encoded
+     */
+    @Test
+    public void roundTripsRunLengthEncoding() {
+        final Random random = new Random(1);
+        for (int game = 0; game < 50; game++) {
+            final MineBoard board = new MineBoard(20 + random.nextInt(60), 20 + random.nextInt(60), 0.15f, random.nextLong());
+            board.freeDig();
+            playEveryState(board, random, 4);
+            final byte[] data = BoardCodec.encode(board);
+            assertEquals(FLAG_RLE, data[1] & FLAG_RLE);
+            assertSameBoard(board, BoardCodec.decode(data));
+        }
+    }
+
+    /**
+     * A state change every cell or two makes runs longer than 2 bits a cell, so it is packed
+     */
+    @Test
+    public void roundTripsPackedEncoding() {
+        final Random random = new Random(2);
+        for (int game = 0; game < 50; game++) {
+            final MineBoard board = new MineBoard(1 + random.nextInt(60), 1 + random.nextInt(60), 0.2f, random.nextLong());
+            board.freeDig();
+            playEveryState(board, random, board.getSizeX() * board.getSizeY() / 2);
+            final byte[] data = BoardCodec.encode(board);
+            assertEquals(0, data[1] & FLAG_RLE);
+            assertSameBoard(board, BoardCodec.decode(data));
+        }
+    }
+
+    @Test
+    public void roundTripsEveryCellState() {
+        final Random random = new Random(3);
+        final MineBoard board = new MineBoard(30, 16, 0.2f, 99);
+        board.freeDig();
+        playEveryState(board, random, 100);
+        final EnumSet<CellState> states = EnumSet.noneOf(CellState.class);
+        for (int y = 0; y < board.getSizeY(); y++) {
+            for (int x = 0; x < board.getSizeX(); x++) {
+                states.add(board.getCellState(x, y));
+            }
+        }
+        assertEquals(EnumSet.allOf(CellState.class), states);
+        assertSameBoard(board, BoardCodec.decode(BoardCodec.encode(board)));
+    }
+
+    @Test
+    public void rejectsUnknownVersion() {
+        final byte[] data = encodedBoard();
+        data[0] = (byte) (BoardCodec.VERSION + 1);
+        assertRejected(data);
+    }
+
+    @Test
+    public void rejectsTruncatedData() {
+        for (boolean rle : new boolean[]{true, false}) {
+            final byte[] data = rle ? encodedBoard() : encodedPackedBoard();
+            assertEquals(rle ? FLAG_RLE : 0, data[1] & FLAG_RLE);
+            for (int length = 0; length < data.length; length++) {
+                assertRejected(Arrays.copyOf(data, length));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsTrailingData() {
+        for (byte[] data : new byte[][]{encodedBoard(), encodedPackedBoard()}) {
+            assertRejected(Arrays.copyOf(data, data.length + 1));
+        }
+    }
+
+    private static byte[] encodedBoard() {
+        final MineBoard board = new MineBoard(20, 20, 0.15f, 5);
+        board.freeDig();
+        return BoardCodec.encode(board);
+    }
+
+    private static byte[] encodedPackedBoard() {
+        final MineBoard board = new MineBoard(20, 20, 0.15f, 5);
+        board.freeDig();
+        playEveryState(board, new Random(6), 200);
+        return BoardCodec.encode(board);
+    }
+
+    private static void assertRejected(byte[] data) {
+        try {
+            BoardCodec.decode(data);
+            fail("Decoded " + data.length + " bytes of bad data");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage() != null);
+        }
+    }
+
+    // flags and digs random cells, bombs included, so covered, flagged and uncovered cells
+    // turn up both on and off bombs
+    private static void playEveryState(MineBoard board, Random random, int moves) {
+        for (int move = 0; move < moves; move++) {
+            final int x = random.nextInt(board.getSizeX());
+            final int y = random.nextInt(board.getSizeY());
+            if (random.nextInt(3) == 0) {
+                board.dig(x, y);
+            } else {
+                board.flag(x, y);
+            }
+        }
+    }
+
+    private static void assertSameBoard(MineBoard expected, MineBoard actual) {
+        assertEquals(expected.getSizeX(), actual.getSizeX());
+        assertEquals(expected.getSizeY(), actual.getSizeY());
+        assertEquals(expected.getSeed(), actual.getSeed());
+        assertEquals(expected.getDifficulty(), actual.getDifficulty(), 0f);
+        for (int y = 0; y < expected.getSizeY(); y++) {
+            for (int x = 0; x < expected.getSizeX(); x++) {
+                assertEquals(x + "/" + y, expected.getCellState(x, y), actual.getCellState(x, y));
+            }
+        }
+        assertEquals(expected.getRemainingSafeCells(), actual.getRemainingSafeCells());
+        assertEquals(expected.getFlagCount(), actual.getFlagCount());
+    }
+}
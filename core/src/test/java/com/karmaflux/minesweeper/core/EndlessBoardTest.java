@@ -0,0 +1,46 @@
+package com.karmaflux.minesweeper.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertNotEquals;
+
+public class EndlessBoardTest {
+    private static final int GAMES = 40;
+    private static final int DIGS = 100;
+    private static final int RANGE = 200;
+
+    /**
+     * Every zero cell a dig uncovers must have its neighbours uncovered too, however far
+     * the flood runs
+     */
+    @Test
+    public void floodLeavesNoHoles() {
+        final Random random = new Random(1);
+        for (int game = 0; game < GAMES; game++) {
+            // the lowest difficulties sit on the MIN_DENSITY floor and make the largest regions
+            final EndlessBoard board = new EndlessBoard(random.nextFloat() * 0.2f, random.nextLong());
+            for (int dig = 0; dig < DIGS; dig++) {
+                final int x = random.nextInt(2 * RANGE) - RANGE;
+                final int y = random.nextInt(2 * RANGE) - RANGE;
+                if (board.getCellState(x, y) != CellState.COVERED) {
+                    continue;
+                }
+                board.dig(x, y);
+                for (int i = 0; i < board.getChangedCount(); i++) {
+                    final int cx = board.getChangedX(i);
+                    final int cy = board.getChangedY(i);
+                    if (board.getAdjacentBombs(cx, cy) != 0) {
+                        continue;
+                    }
+                    for (int ny = cy - 1; ny <= cy + 1; ny++) {
+                        for (int nx = cx - 1; nx <= cx + 1; nx++) {
+                            assertNotEquals(CellState.COVERED, board.getCellState(nx, ny));
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
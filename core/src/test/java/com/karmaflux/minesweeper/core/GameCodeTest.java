@@ -0,0 +1,46 @@
+package com.karmaflux.minesweeper.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class GameCodeTest {
+    @Test
+    public void roundTrip() {
+        final GameCode code = new GameCode(30, 16, 0.2f, true, 0x123456789ABCDEFL);
+        final GameCode decoded = GameCode.decode(code.encode());
+        assertEquals(30, decoded.getSizeX());
+        assertEquals(16, decoded.getSizeY());
+        assertEquals(0.2f, decoded.getDifficulty(), 0.001f);
+        assertEquals(true, decoded.isFreeDig());
+        assertEquals(0x123456789ABCDEFL, decoded.getSeed());
+    }
+
+    @Test
+    public void acceptsMenuSizeLimits() {
+        for (int size : new int[]{GameCode.MIN_BOARD_SIZE, GameCode.MAX_BOARD_SIZE}) {
+            final GameCode decoded = GameCode.decode(new GameCode(size, size, 0.1f, false, 7).encode());
+            assertEquals(size, decoded.getSizeX());
+            assertEquals(size, decoded.getSizeY());
+        }
+    }
+
+    /**
+     * Codes naming boards the menu would not offer must fail to decode rather than
+     * run out of memory or overflow the cell count
+     */
+    @Test
+    public void rejectsSizesOutsideMenuLimits() {
+        final int[][] sizes = {{1, 1}, {3, 16}, {30, 3}, {1001, 16}, {65536, 65536}, {100000, 100000}};
+        for (int[] size : sizes) {
+            final String encoded = new GameCode(size[0], size[1], 0.1f, false, 7).encode();
+            try {
+                GameCode.decode(encoded);
+                fail("Decoded " + size[0] + "x" + size[1]);
+            } catch (IllegalArgumentException expected) {
+                // rejected as it should be
+            }
+        }
+    }
+}
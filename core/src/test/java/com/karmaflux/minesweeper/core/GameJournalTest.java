@@ -0,0 +1,193 @@
+package com.karmaflux.minesweeper.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GameJournalTest {
+    private static final int SIZE = 40;
+    // more moves than GameJournal compacts after
+    private static final int MANY_MOVES = 600;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private MineBoard board;
+    private GameJournal journal;
+    private Random random;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder();
+        board = new MineBoard(SIZE, SIZE, 0.15f, 11);
+        board.freeDig();
+        journal = new GameJournal(directory);
+        journal.start(board, true);
+        random = new Random(5);
+    }
+
+    @Test
+    public void restoresJournaledMoves() {
+        play(20);
+        final GameJournal.SavedGame saved = restore();
+        assertTrue(saved.isFreeDig());
+        assertSameState(board, saved.getBoard());
+    }
+
+    /**
+     * A crash in the middle of a write leaves part of a record at the end, the moves before
+     * it are still restored
+     */
+    @Test
+    public void ignoresTornTail() throws IOException {
+        play(20);
+        final byte[] expected = stateCodes(board);
+        journal.restore(); // waits for the writes
+        final File journalFile = new File(directory, "autosave.journal");
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.seek(file.length());
+            file.write(new byte[]{0x40, 0, 0, 1, 0x12}); // 5 of 8 bytes
+        }
+        assertArrayEquals(expected, stateCodes(restore().getBoard()));
+
+        // a full length record whose check half never made it to disk
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(file.length() - 5);
+            file.seek(file.length());
+            file.writeInt(0x40000001);
+            file.writeInt(0);
+        }
+        assertArrayEquals(expected, stateCodes(restore().getBoard()));
+    }
+
+    @Test
+    public void rejectsSnapshotWithBadCrc() throws IOException {
+        play(5);
+        journal.restore();
+        final File snapshotFile = new File(directory, "autosave.snapshot");
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.seek(20);
+            final int b = file.read();
+            file.seek(20);
+            file.write(b ^ 1);
+        }
+        final GameJournal reader = new GameJournal(directory);
+        assertTrue(reader.hasSavedGame());
+        assertNull(reader.restore());
+    }
+
+    /**
+     * Compaction replaces the snapshot before it truncates the journal. A crash between the
+     * two leaves the old journal, whose moves are already in the snapshot and must not be
+     * applied again.
+     */
+    @Test
+    public void ignoresJournalFromBeforeCompaction() throws IOException {
+        playFlags(10); // flags toggle, replaying them twice would undo them
+        journal.restore();
+        final File journalFile = new File(directory, "autosave.journal");
+        final byte[] oldJournal = readFile(journalFile);
+
+        playFlags(MANY_MOVES);
+        journal.restore();
+        assertTrue(readFile(journalFile).length < MANY_MOVES * 8); // compacted
+
+        // what the new snapshot holds, without the moves journaled after it
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(8);
+        }
+        final byte[] expected = stateCodes(restore().getBoard());
+
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(0);
+            file.write(oldJournal);
+        }
+        assertArrayEquals(expected, stateCodes(restore().getBoard()));
+    }
+
+    /**
+     * Moves journaled after a compaction are replayed on top of the new snapshot
+     */
+    @Test
+    public void replaysMovesAfterSnapshot() {
+        playFlags(MANY_MOVES);
+        play(20);
+        assertSameState(board, restore().getBoard());
+    }
+
+    @Test
+    public void clearDeletesSavedGame() {
+        play(5);
+        journal.clear();
+        assertNull(journal.restore());
+        assertFalse(new GameJournal(directory).hasSavedGame());
+    }
+
+    // digs covered cells, skipping bombs so the game goes on
+    private void play(int moves) {
+        for (int move = 0; move < moves && !board.checkWin(); move++) {
+            final int x = random.nextInt(SIZE);
+            final int y = random.nextInt(SIZE);
+            final CellState state = board.getCellState(x, y);
+            if (state == CellState.COVERED) {
+                board.dig(x, y);
+                journal.recordDig(x, y);
+            } else if (state == CellState.UNCOVERED) {
+                board.chord(x, y);
+                journal.recordChord(x, y);
+            }
+        }
+    }
+
+    // flags toggle, so these never end the game
+    private void playFlags(int moves) {
+        for (int move = 0; move < moves; move++) {
+            final int x = random.nextInt(SIZE);
+            final int y = random.nextInt(SIZE);
+            board.flag(x, y);
+            journal.recordFlag(x, y);
+        }
+    }
+
+    // reads the files as a new process would, after the writes queued so far
+    private GameJournal.SavedGame restore() {
+        journal.restore();
+        final GameJournal.SavedGame saved = new GameJournal(directory).restore();
+        assertNotNull(saved);
+        return saved;
+    }
+
+    private static void assertSameState(MineBoard expected, MineBoard actual) {
+        assertArrayEquals(stateCodes(expected), stateCodes(actual));
+        assertEquals(expected.getRemainingSafeCells(), actual.getRemainingSafeCells());
+        assertEquals(expected.getFlagCount(), actual.getFlagCount());
+    }
+
+    private static byte[] stateCodes(MineBoard board) {
+        final byte[] codes = new byte[board.getSizeX() * board.getSizeY()];
+        board.copyStateCodes(codes);
+        return codes;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            final byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return bytes;
+        }
+    }
+}
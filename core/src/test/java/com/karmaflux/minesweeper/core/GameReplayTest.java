@@ -0,0 +1,89 @@
+package com.karmaflux.minesweeper.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class GameReplayTest {
+    private static final int GAMES = 50;
+    private static final int MOVES = 300;
+
+    /**
+     * Records seeded random games, shares them as text and checks the replay matches the
+     * recorded board after every move, stepping and seeking
+     */
+    @Test
+    public void replayMatchesRecordedGame() {
+        final Random random = new Random(1);
+        for (int game = 0; game < GAMES; game++) {
+            final GameCode code = new GameCode(4 + random.nextInt(40), 4 + random.nextInt(40),
+                    random.nextFloat() * 0.3f, random.nextBoolean(), random.nextLong());
+            final MineBoard board = code.createBoard();
+            if (code.isFreeDig()) {
+                board.freeDig();
+            }
+            final MoveLog log = new MoveLog();
+            final List<byte[]> states = new ArrayList<>();
+            states.add(stateCodes(board));
+            long timeMillis = 0;
+            for (int move = 0; move < MOVES; move++) {
+                final int x = random.nextInt(board.getSizeX());
+                final int y = random.nextInt(board.getSizeY());
+                final int action = 1 + random.nextInt(3);
+                switch (action) {
+                    case MoveLog.FLAG:
+                        board.flag(x, y);
+                        break;
+                    case MoveLog.CHORD:
+                        board.chord(x, y);
+                        break;
+                    default:
+                        board.dig(x, y);
+                }
+                timeMillis += random.nextInt(5000);
+                log.add(timeMillis, action, y * board.getSizeX() + x);
+                states.add(stateCodes(board));
+            }
+
+            final GameReplay replay = GameReplay.decode(GameReplay.encode(code, log));
+            assertEquals(MOVES, replay.getMoveCount());
+            assertEquals(timeMillis, replay.getDurationMillis());
+            for (int move = 0; move <= MOVES; move++) {
+                assertArrayEquals(states.get(move), stateCodes(replay.getBoard()));
+                replay.step();
+            }
+            for (int seek = 0; seek < 20; seek++) {
+                final int target = random.nextInt(MOVES + 1);
+                replay.seek(target);
+                assertEquals(target, replay.getPosition());
+                assertArrayEquals(states.get(target), stateCodes(replay.getBoard()));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsMalformedReplays() {
+        final String code = new GameCode(10, 10, 0.1f, false, 7).encode();
+        final String[] replays = {code, code + "/1.", code + "/1.4", code + "/1.zz-", code + "/1." + Long.toString(100 << 2 | 1, 36)};
+        for (String replay : replays) {
+            try {
+                GameReplay.decode(replay);
+                fail("Decoded " + replay);
+            } catch (IllegalArgumentException expected) {
+                // rejected as it should be
+            }
+        }
+    }
+
+    private static byte[] stateCodes(MineBoard board) {
+        final byte[] codes = new byte[board.getSizeX() * board.getSizeY()];
+        board.copyStateCodes(codes);
+        return codes;
+    }
+}
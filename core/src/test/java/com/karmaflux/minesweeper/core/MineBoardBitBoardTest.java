@@ -0,0 +1,98 @@
+package com.karmaflux.minesweeper.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Randomized differential test of the BitBoard adjacency and flood fills against the
+ * per-cell ones
+ */
+public class MineBoardBitBoardTest {
+    private static final int BOARDS = 200;
+    private static final int MOVES = 80;
+    // widths either side of the 64 bit word edges, the rest are random
+    private static final int[] EDGE_WIDTHS = {1, 63, 64, 65, 127, 128, 129};
+
+    @After
+    public void restoreBitBoards() {
+        MineBoard.setBitBoards(false);
+    }
+
+    @Test
+    public void bitBoardsPlayLikePerCellOnes() {
+        final Random random = new Random(23);
+        for (int b = 0; b < BOARDS; b++) {
+            final int sizeX = b < EDGE_WIDTHS.length * 4 ? EDGE_WIDTHS[b % EDGE_WIDTHS.length] : 1 + random.nextInt(200);
+            final int sizeY = 1 + random.nextInt(70);
+            final float difficulty = random.nextFloat() * 0.4f;
+            final long seed = random.nextLong();
+            final String name = "board " + b + " " + sizeX + "x" + sizeY;
+
+            MineBoard.setBitBoards(false);
+            final MineBoard perCell = new MineBoard(sizeX, sizeY, difficulty, seed);
+            MineBoard.setBitBoards(true);
+            final MineBoard bitwise = new MineBoard(sizeX, sizeY, difficulty, seed);
+            if (random.nextInt(4) == 0) {
+                perCell.regenerate(seed + 1);
+                bitwise.regenerate(seed + 1);
+            }
+            assertSame(name, perCell, bitwise);
+
+            if (random.nextBoolean()) {
+                perCell.freeDigLargestOpening();
+                bitwise.freeDigLargestOpening();
+            } else {
+                perCell.freeDig();
+                bitwise.freeDig();
+            }
+            assertSame(name + " free dig", perCell, bitwise);
+
+            for (int move = 0; move < MOVES; move++) {
+                final int x = random.nextInt(sizeX);
+                final int y = random.nextInt(sizeY);
+                switch (random.nextInt(3)) {
+                    case 0:
+                        assertEquals(name, perCell.dig(x, y), bitwise.dig(x, y));
+                        break;
+                    case 1:
+                        perCell.flag(x, y);
+                        bitwise.flag(x, y);
+                        break;
+                    default:
+                        assertEquals(name, perCell.chord(x, y), bitwise.chord(x, y));
+                }
+                assertSame(name + " move " + move, perCell, bitwise);
+            }
+        }
+    }
+
+    private static void assertSame(String message, MineBoard expected, MineBoard actual) {
+        for (int y = 0; y < expected.getSizeY(); y++) {
+            for (int x = 0; x < expected.getSizeX(); x++) {
+                assertEquals(message, expected.getCellState(x, y), actual.getCellState(x, y));
+                assertEquals(message, expected.getAdjacentBombs(x, y), actual.getAdjacentBombs(x, y));
+            }
+        }
+        assertArrayEquals(message, changedCells(expected), changedCells(actual));
+        assertEquals(message, expected.getRemainingSafeCells(), actual.getRemainingSafeCells());
+        assertEquals(message, expected.getFlagCount(), actual.getFlagCount());
+        assertEquals(message, expected.findFreeDigCell(), actual.findFreeDigCell());
+        assertEquals(message, expected.checkWin(), actual.checkWin());
+    }
+
+    // Sorted, the order cells are opened in is not part of the contract
+    private static int[] changedCells(MineBoard board) {
+        final int[] changed = new int[board.getChangedCount()];
+        for (int i = 0; i < changed.length; i++) {
+            changed[i] = board.getChangedY(i) * board.getSizeX() + board.getChangedX(i);
+        }
+        Arrays.sort(changed);
+        return changed;
+    }
+}
@@ -0,0 +1,90 @@
+package com.karmaflux.minesweeper.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Randomized differential test of the fork/join generation against the sequential one
+ */
+public class MineBoardParallelTest {
+    private static final int BOARDS = 150;
+    private static final int MOVES = 60;
+
+    @After
+    public void restoreThreshold() {
+        MineBoard.setParallelMinCells(MineBoard.DEFAULT_PARALLEL_MIN_CELLS);
+    }
+
+    @Test
+    public void parallelBoardsPlayLikeSequentialOnes() {
+        final Random random = new Random(24);
+        for (int b = 0; b < BOARDS; b++) {
+            // heights past a single band and mostly not a multiple of it
+            final int sizeX = 1 + random.nextInt(150);
+            final int sizeY = MineBoard.BAND_ROWS + 1 + random.nextInt(5 * MineBoard.BAND_ROWS);
+            final float difficulty = random.nextFloat() * 0.4f;
+            final long seed = random.nextLong();
+            final String name = "board " + b + " " + sizeX + "x" + sizeY;
+
+            MineBoard.setParallelMinCells(Integer.MAX_VALUE);
+            final MineBoard sequential = new MineBoard(sizeX, sizeY, difficulty, seed);
+            MineBoard.setParallelMinCells(0);
+            final MineBoard parallel = new MineBoard(sizeX, sizeY, difficulty, seed);
+            if (random.nextInt(4) == 0) {
+                sequential.regenerate(seed + 1);
+                parallel.regenerate(seed + 1);
+            }
+            assertSame(name, sequential, parallel);
+
+            sequential.freeDigLargestOpening();
+            parallel.freeDigLargestOpening();
+            assertSame(name + " largest opening", sequential, parallel);
+
+            for (int move = 0; move < MOVES; move++) {
+                final int x = random.nextInt(sizeX);
+                final int y = random.nextInt(sizeY);
+                switch (random.nextInt(3)) {
+                    case 0:
+                        assertEquals(name, sequential.dig(x, y), parallel.dig(x, y));
+                        break;
+                    case 1:
+                        sequential.flag(x, y);
+                        parallel.flag(x, y);
+                        break;
+                    default:
+                        assertEquals(name, sequential.chord(x, y), parallel.chord(x, y));
+                }
+                assertSame(name + " move " + move, sequential, parallel);
+            }
+        }
+    }
+
+    private static void assertSame(String message, MineBoard expected, MineBoard actual) {
+        for (int y = 0; y < expected.getSizeY(); y++) {
+            for (int x = 0; x < expected.getSizeX(); x++) {
+                assertEquals(message, expected.getCellState(x, y), actual.getCellState(x, y));
+                assertEquals(message, expected.getAdjacentBombs(x, y), actual.getAdjacentBombs(x, y));
+            }
+        }
+        assertArrayEquals(message, changedCells(expected), changedCells(actual));
+        assertEquals(message, expected.getRemainingSafeCells(), actual.getRemainingSafeCells());
+        assertEquals(message, expected.getFlagCount(), actual.getFlagCount());
+        assertEquals(message, expected.findFreeDigCell(), actual.findFreeDigCell());
+    }
+
+    // Sorted, the order cells are opened in is not part of the contract
+    private static int[] changedCells(MineBoard board) {
+        final int[] changed = new int[board.getChangedCount()];
+        for (int i = 0; i < changed.length; i++) {
+            changed[i] = board.getChangedY(i) * board.getSizeX() + board.getChangedX(i);
+        }
+        Arrays.sort(changed);
+        return changed;
+    }
+}
@@ -0,0 +1,179 @@
+package com.karmaflux.minesweeper.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MineBoardTest {
+    private static final int GAMES = 300;
+    private static final int MOVES = 200;
+
+    /**
+     * Plays seeded random digs, flags and chords, checking the live counters against a full
+     * board scan after every move
+     */
+    @Test
+    public void countersMatchFullScan() {
+        final Random random = new Random(1);
+        for (int game = 0; game < GAMES; game++) {
+            final int sizeX = 4 + random.nextInt(40);
+            final int sizeY = 4 + random.nextInt(40);
+            final MineBoard board = new MineBoard(sizeX, sizeY, random.nextFloat(), random.nextLong());
+            if (random.nextBoolean()) {
+                board.freeDig();
+            }
+            for (int move = 0; move < MOVES; move++) {
+                final int x = random.nextInt(sizeX);
+                final int y = random.nextInt(sizeY);
+                switch (random.nextInt(3)) {
+                    case 0:
+                        board.dig(x, y);
+                        break;
+                    case 1:
+                        board.flag(x, y);
+                        break;
+                    default:
+                        board.chord(x, y);
+                }
+                board.verifyCounters();
+                assertEquals("game " + game + " move " + move, board.checkWinFullScan(), board.checkWin());
+            }
+        }
+    }
+
+    @Test
+    public void winningEveryCellMatchesFullScan() {
+        final Random random = new Random(2);
+        for (int game = 0; game < GAMES; game++) {
+            final int sizeX = 4 + random.nextInt(30);
+            final int sizeY = 4 + random.nextInt(30);
+            final MineBoard board = new MineBoard(sizeX, sizeY, random.nextFloat() * 0.5f, random.nextLong());
+            for (int i = 0; i < sizeX * sizeY; i++) {
+                final int x = i % sizeX;
+                final int y = i / sizeX;
+                final CellState state = board.getCellState(x, y);
+                if (state == CellState.COVERED_BOMB) {
+                    board.flag(x, y);
+                } else if (state == CellState.COVERED) {
+                    board.dig(x, y);
+                }
+                board.verifyCounters();
+            }
+            assertEquals(0, board.getRemainingSafeCells());
+            assertEquals(board.getNumBombs(), board.getFlagCount());
+            assertTrue(board.checkWin());
+            assertTrue(board.checkWinFullScan());
+        }
+    }
+
+    /**
+     * Checks seeded boards, single rows and columns included, against a bomb count and a
+     * naive 8 neighbour adjacency count
+     */
+    @Test
+    public void generationMatchesNaiveCount() {
+        final int[][] sizes = {{1, 1}, {1, 2}, {1, 40}, {40, 1}, {2, 2}, {3, 7}, {7, 3}, {16, 16}, {30, 16}, {65, 9}};
+        final float[] difficulties = {0f, 0.1f, 0.4f, 1f};
+        for (int[] size : sizes) {
+            for (float difficulty : difficulties) {
+                for (long seed = 0; seed < 5; seed++) {
+                    final MineBoard board = new MineBoard(size[0], size[1], difficulty, seed * 7919);
+                    final String message = size[0] + "x" + size[1] + " " + difficulty + " seed " + seed;
+                    checkGeneration(board, message);
+                    board.regenerate(seed * 7919 + 1); // reuses the arrays of the last board
+                    checkGeneration(board, message + " regenerated");
+                }
+            }
+        }
+    }
+
+    private static void checkGeneration(MineBoard board, String message) {
+        final int sizeX = board.getSizeX();
+        final int sizeY = board.getSizeY();
+        int bombs = 0;
+        for (int y = 0; y < sizeY; y++) {
+            for (int x = 0; x < sizeX; x++) {
+                bombs += board.getCellState(x, y) == CellState.COVERED_BOMB ? 1 : 0;
+            }
+        }
+        assertEquals(message, MineBoard.estimateBombs(sizeX, sizeY, board.getDifficulty()), board.getNumBombs());
+        assertEquals(message, board.getNumBombs(), bombs);
+        assertEquals(message, sizeX * sizeY - bombs, board.getRemainingSafeCells());
+
+        for (int y = 0; y < sizeY; y++) {
+            for (int x = 0; x < sizeX; x++) {
+                if (board.getCellState(x, y) == CellState.COVERED_BOMB) {
+                    continue;
+                }
+                int adjacent = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        final int nx = x + dx;
+                        final int ny = y + dy;
+                        if ((dx != 0 || dy != 0) && nx >= 0 && nx < sizeX && ny >= 0 && ny < sizeY
+                                && board.getCellState(nx, ny) == CellState.COVERED_BOMB) {
+                            adjacent++;
+                        }
+                    }
+                }
+                assertEquals(message + " at " + x + "/" + y, adjacent, board.getAdjacentBombs(x, y));
+            }
+        }
+    }
+
+    /**
+     * The free dig opens a zero cell whenever the board has one, else a safe cell with the
+     * fewest adjacent bombs, and the same seed always picks the same cell
+     */
+    @Test
+    public void freeDigCellHasFewestAdjacentBombs() {
+        final Random random = new Random(3);
+        for (int game = 0; game < GAMES; game++) {
+            final int sizeX = 1 + random.nextInt(30);
+            final int sizeY = 1 + random.nextInt(30);
+            final float difficulty = random.nextFloat();
+            final long seed = random.nextLong();
+            final MineBoard board = new MineBoard(sizeX, sizeY, difficulty, seed);
+            final int pick = board.findFreeDigCell();
+
+            int fewest = Integer.MAX_VALUE;
+            for (int i = 0; i < sizeX * sizeY; i++) {
+                if (board.getCellState(i % sizeX, i / sizeX) == CellState.COVERED) {
+                    fewest = Math.min(fewest, board.getAdjacentBombs(i % sizeX, i / sizeX));
+                }
+            }
+            if (fewest == Integer.MAX_VALUE) {
+                assertEquals(-1, pick);
+                continue;
+            }
+            assertTrue(pick >= 0);
+            assertEquals(CellState.COVERED, board.getCellState(pick % sizeX, pick / sizeX));
+            assertEquals(fewest, board.getAdjacentBombs(pick % sizeX, pick / sizeX)); // 0 if any zero cell exists
+
+            assertEquals(pick, new MineBoard(sizeX, sizeY, difficulty, seed).findFreeDigCell());
+            final MineBoard reused = new MineBoard(sizeX, sizeY, difficulty, seed + 1);
+            reused.regenerate(seed);
+            assertEquals(pick, reused.findFreeDigCell());
+        }
+    }
+
+    @Test
+    public void freeDigCellWithoutZeroCells() {
+        // every safe cell touches the middle bomb
+        final MineBoard board = MineBoard.withBombs(3, 1, 1);
+        final int pick = board.findFreeDigCell();
+        assertTrue(pick == 0 || pick == 2);
+        assertEquals(1, board.getAdjacentBombs(pick, 0));
+    }
+
+    @Test
+    public void noFreeDigCellWithoutSafeCells() {
+        final MineBoard board = MineBoard.withBombs(2, 2, 0, 1, 2, 3);
+        assertEquals(-1, board.findFreeDigCell());
+        board.freeDig();
+        assertEquals(0, board.getChangedCount());
+    }
+}
@@ -0,0 +1,209 @@
+package com.karmaflux.minesweeper.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MineProbabilityTest {
+    private static final int GAMES = 3;
+    private static final int SIZE_X = 100;
+    private static final int SIZE_Y = 60;
+
+    /**
+     * Plays large boards, whose frontiers grow past what can be counted whole, by digging the
+     * safest safe cell. Cells given certain odds must be right, and every cell a single number
+     * pins as a mine must get odds of 1, not an estimate.
+     */
+    @Test
+    public void largeFrontiersKeepCertainCells() {
+        final Random random = new Random(1);
+        for (int game = 0; game < GAMES; game++) {
+            final MineBoard board = new MineBoard(SIZE_X, SIZE_Y, 0.2f, random.nextLong());
+            board.freeDig();
+            final MineProbability probability = new MineProbability();
+            for (int move = 0; move < SIZE_X * SIZE_Y / 10 && !board.checkWin(); move++) {
+                probability.update(board);
+                int best = -1;
+                float bestP = 2f;
+                for (int i = 0; i < SIZE_X * SIZE_Y; i++) {
+                    final int x = i % SIZE_X;
+                    final int y = i / SIZE_X;
+                    final float p = probability.getProbability(x, y);
+                    if (p < 0) {
+                        continue;
+                    }
+                    final boolean bomb = board.getCellState(x, y) == CellState.COVERED_BOMB;
+                    if (p == 0f) {
+                        assertTrue("Mine at " + x + "/" + y + " given odds of 0", !bomb);
+                    } else if (p > 0.9999f) {
+                        assertTrue("Safe cell at " + x + "/" + y + " given odds of 1", bomb);
+                    }
+                    if (!bomb && p < bestP) {
+                        bestP = p;
+                        best = i;
+                    }
+                }
+                checkPinnedMines(board, probability);
+                board.dig(best % SIZE_X, best / SIZE_X);
+            }
+        }
+    }
+
+    /**
+     * Small boards are checked against every mine layout that agrees with the numbers
+     */
+    @Test
+    public void matchesBruteForceOnSmallBoards() {
+        final Random random = new Random(2);
+        final int[][] sizes = {{4, 4}, {5, 3}, {6, 3}, {1, 12}, {12, 1}, {4, 5}};
+        int checked = 0;
+        for (int game = 0; game < 120; game++) {
+            final int[] size = sizes[game % sizes.length];
+            final MineBoard board = new MineBoard(size[0], size[1], 0.2f + random.nextFloat() * 0.2f, random.nextLong());
+            board.freeDig();
+            final MineProbability probability = new MineProbability();
+            while (!board.checkWin()) {
+                probability.update(board);
+                checked += checkBruteForce(board, probability) ? 1 : 0;
+                final int cell = randomCell(board, random, CellState.COVERED);
+                board.dig(cell % size[0], cell / size[0]);
+            }
+        }
+        assertTrue(checked > 100);
+    }
+
+    /**
+     * An instance kept across moves, which only rebuilds what each move touched, must agree
+     * with a fresh one built from the whole board
+     */
+    @Test
+    public void reusedInstanceMatchesFresh() {
+        final Random random = new Random(3);
+        for (int game = 0; game < 6; game++) {
+            final MineBoard board = new MineBoard(30, 16, 0.2f, random.nextLong());
+            board.freeDig();
+            final MineProbability reused = new MineProbability();
+            while (!board.checkWin()) {
+                reused.update(board);
+                final MineProbability fresh = new MineProbability();
+                fresh.update(board);
+                for (int y = 0; y < 16; y++) {
+                    for (int x = 0; x < 30; x++) {
+                        assertEquals(x + "/" + y, fresh.getProbability(x, y), reused.getProbability(x, y), 0.00001f);
+                    }
+                }
+                if (random.nextInt(4) == 0 && board.getFlagCount() < board.getNumBombs()) {
+                    final int cell = randomCell(board, random, CellState.COVERED_BOMB);
+                    board.flag(cell % 30, cell / 30); // a move that uncovers nothing
+                } else {
+                    final int cell = randomCell(board, random, CellState.COVERED);
+                    board.dig(cell % 30, cell / 30);
+                }
+            }
+        }
+    }
+
+    private static int randomCell(MineBoard board, Random random, CellState state) {
+        final int sizeX = board.getSizeX();
+        final int size = sizeX * board.getSizeY();
+        int cell;
+        do {
+            cell = random.nextInt(size);
+        } while (board.getCellState(cell % sizeX, cell / sizeX) != state);
+        return cell;
+    }
+
+    /**
+     * @return False if the board had too many covered cells to try every layout
+     */
+    private static boolean checkBruteForce(MineBoard board, MineProbability probability) {
+        final int sizeX = board.getSizeX();
+        final int sizeY = board.getSizeY();
+        final int[] covered = new int[sizeX * sizeY];
+        int count = 0;
+        for (int i = 0; i < sizeX * sizeY; i++) {
+            if (probability.getProbability(i % sizeX, i / sizeX) >= 0) {
+                covered[count++] = i;
+            }
+        }
+        if (count > 16) {
+            return false;
+        }
+        final boolean[] mine = new boolean[sizeX * sizeY];
+        final long[] mines = new long[count];
+        long layouts = 0;
+        for (int layout = 0; layout < 1 << count; layout++) {
+            if (Integer.bitCount(layout) != board.getNumBombs()) {
+                continue;
+            }
+            for (int c = 0; c < count; c++) {
+                mine[covered[c]] = (layout >> c & 1) != 0;
+            }
+            if (!agreesWithNumbers(board, mine)) {
+                continue;
+            }
+            layouts++;
+            for (int c = 0; c < count; c++) {
+                mines[c] += mine[covered[c]] ? 1 : 0;
+            }
+        }
+        assertTrue(layouts > 0);
+        for (int c = 0; c < count; c++) {
+            final int x = covered[c] % sizeX;
+            final int y = covered[c] / sizeX;
+            assertEquals(x + "/" + y, (float) mines[c] / layouts, probability.getProbability(x, y), 0.0001f);
+        }
+        return true;
+    }
+
+    private static boolean agreesWithNumbers(MineBoard board, boolean[] mine) {
+        final int sizeX = board.getSizeX();
+        final int sizeY = board.getSizeY();
+        for (int y = 0; y < sizeY; y++) {
+            for (int x = 0; x < sizeX; x++) {
+                if (board.getCellState(x, y) != CellState.UNCOVERED) {
+                    continue;
+                }
+                int around = 0;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++) {
+                        around += mine[nx + ny * sizeX] ? 1 : 0;
+                    }
+                }
+                if (around != board.getAdjacentBombs(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void checkPinnedMines(MineBoard board, MineProbability probability) {
+        for (int y = 0; y < SIZE_Y; y++) {
+            for (int x = 0; x < SIZE_X; x++) {
+                if (board.getCellState(x, y) != CellState.UNCOVERED || board.getAdjacentBombs(x, y) == 0) {
+                    continue;
+                }
+                int covered = 0;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(SIZE_Y - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(SIZE_X - 1, x + 1); nx++) {
+                        covered += probability.getProbability(nx, ny) >= 0 ? 1 : 0;
+                    }
+                }
+                if (covered != board.getAdjacentBombs(x, y)) {
+                    continue;
+                }
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(SIZE_Y - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(SIZE_X - 1, x + 1); nx++) {
+                        if (probability.getProbability(nx, ny) >= 0) {
+                            assertEquals(1f, probability.getProbability(nx, ny), 0.0001f);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
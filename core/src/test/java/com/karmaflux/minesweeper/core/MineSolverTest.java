@@ -0,0 +1,102 @@
+package com.karmaflux.minesweeper.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MineSolverTest {
+    private static final int BOARDS = 200;
+
+    /**
+     * Every board generateSolvable() accepts is won by digging only the cells the solver
+     * deduced safe, starting from the free dig
+     */
+    @Test
+    public void solvableBoardsClearFromFreeDig() {
+        final Random random = new Random(1);
+        final MineSolver solver = new MineSolver();
+        int found = 0;
+        for (int n = 0; n < BOARDS / 4; n++) {
+            final int sizeX = 5 + random.nextInt(30);
+            final int sizeY = 5 + random.nextInt(20);
+            final MineBoard board = MineBoard.generateSolvable(sizeX, sizeY, random.nextFloat() * 0.2f,
+                    random.nextLong(), 1000);
+            if (board == null) {
+                continue;
+            }
+            found++;
+            final int start = board.findFreeDigCell();
+            assertTrue(solver.isSolvable(board, start % sizeX, start / sizeX));
+            board.freeDig();
+            for (int y = 0; y < sizeY; y++) {
+                for (int x = 0; x < sizeX; x++) {
+                    if (solver.isDeducedSafe(x, y) && board.getCellState(x, y) == CellState.COVERED) {
+                        assertFalse("Dug a bomb at " + x + "/" + y, board.dig(x, y));
+                    }
+                }
+            }
+            assertTrue(board.checkWin());
+        }
+        assertTrue(found > BOARDS / 8);
+    }
+
+    /**
+     * Whether or not a board turns out solvable, nothing the solver deduced may be wrong
+     */
+    @Test
+    public void neverRevealsMine() {
+        final Random random = new Random(2);
+        final MineSolver solver = new MineSolver();
+        for (int n = 0; n < BOARDS; n++) {
+            final int sizeX = 1 + random.nextInt(40);
+            final int sizeY = 1 + random.nextInt(40);
+            final MineBoard board = new MineBoard(sizeX, sizeY, random.nextFloat(), random.nextLong());
+            final int start = board.findFreeDigCell();
+            if (start < 0) {
+                continue;
+            }
+            solver.isSolvable(board, start % sizeX, start / sizeX);
+            for (int y = 0; y < sizeY; y++) {
+                for (int x = 0; x < sizeX; x++) {
+                    final boolean bomb = board.getCellState(x, y) == CellState.COVERED_BOMB;
+                    assertFalse("Bomb at " + x + "/" + y + " deduced safe", bomb && solver.isDeducedSafe(x, y));
+                    assertFalse("Safe cell at " + x + "/" + y + " deduced a mine", !bomb && solver.isDeducedMine(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * 0 1 *
+     * 0 1 .
+     * Both cells on the right touch the same two 1s, one of them is the mine and nothing
+     * tells which
+     */
+    @Test
+    public void rejectsFiftyFifty() {
+        final MineBoard board = MineBoard.withBombs(3, 2, 2);
+        assertFalse(new MineSolver().isSolvable(board, 0, 0));
+    }
+
+    /**
+     * 0 0 1 * .
+     * The 1 pins the mine, then the mine count clears the last cell
+     */
+    @Test
+    public void acceptsForcedPosition() {
+        final MineBoard board = MineBoard.withBombs(5, 1, 3);
+        assertTrue(new MineSolver().isSolvable(board, 0, 0));
+    }
+
+    @Test
+    public void reportsWhenNoSolvableBoardIsFound() {
+        // four in five cells are mines, a single attempt is as good as never solvable
+        assertNull(MineBoard.generateSolvable(10, 10, 1f, 7, 0));
+        assertNotNull(MineBoard.generateSolvable(10, 10, 0f, 7, 0));
+    }
+}
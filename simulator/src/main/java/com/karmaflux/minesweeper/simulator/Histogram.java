@@ -0,0 +1,82 @@
+package com.karmaflux.minesweeper.simulator;
+
+/**
+ * Count of values from 0 to a maximum, larger values are counted in the last bucket.
+ * Not thread safe, each simulation task fills its own and they are merged at the end.
+ */
+public class Histogram {
+    private final long[] counts;
+    private long total;
+    private long sum;
+
+    public Histogram(int maxValue) {
+        counts = new long[maxValue + 1];
+    }
+
+    public void record(int value) {
+        counts[Math.min(value, counts.length - 1)]++;
+        total++;
+        sum += value;
+    }
+
+    public void add(Histogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getCount(int value) {
+        return counts[value];
+    }
+
+    public double getMean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    /**
+     * @return The smallest value at or above the given fraction of all recorded values, 0 if empty
+     */
+    public int getPercentile(double fraction) {
+        if (total == 0) {
+            return 0;
+        }
+        final long target = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return i;
+            }
+        }
+        return counts.length - 1;
+    }
+
+    /**
+     * @return The distribution as lines of value, count and a bar, skipping empty values
+     */
+    public String format(String valueName) {
+        final StringBuilder sb = new StringBuilder();
+        long max = 1;
+        for (long count : counts) {
+            max = Math.max(max, count);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            sb.append(String.format("  %s %4d%s %10d %6.2f%% ", valueName, i, i == counts.length - 1 ? "+" : " ",
+                    counts[i], 100.0 * counts[i] / total));
+            for (int bar = (int) (40 * counts[i] / max); bar > 0; bar--) {
+                sb.append('#');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
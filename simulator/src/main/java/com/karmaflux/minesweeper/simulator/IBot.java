@@ -0,0 +1,25 @@
+package com.karmaflux.minesweeper.simulator;
+
+import com.karmaflux.minesweeper.core.MineBoard;
+import com.karmaflux.minesweeper.core.SplitMix64;
+
+/**
+ * A player strategy. Bots only look at what a player could see: cell states and the numbers
+ * of uncovered cells. One instance plays many games in a row on one thread.
+ */
+public interface IBot {
+    /**
+     * Called before every game, with the random stream the bot must use for that game
+     */
+    void reset(MineBoard board, SplitMix64 rng);
+
+    /**
+     * @return Row-major index of the covered cell to dig next
+     */
+    int nextDig(MineBoard board);
+
+    /**
+     * @return Whether the last nextDig() was a guess rather than a deduced safe cell
+     */
+    boolean wasGuess();
+}
@@ -0,0 +1,43 @@
+package com.karmaflux.minesweeper.simulator;
+
+import com.karmaflux.minesweeper.core.MineBoard;
+import com.karmaflux.minesweeper.core.MineProbability;
+
+/**
+ * RuleBot that, when stuck, digs the covered cell least likely to be a mine according to
+ * MineProbability. A cell with probability 0 is a deduction the single cell rule missed and
+ * does not count as a guess.
+ */
+public class ProbabilityBot extends RuleBot {
+    private final MineProbability probability = new MineProbability();
+    private boolean certain;
+
+    @Override
+    protected int guess(MineBoard board) {
+        probability.update(board);
+        int best = -1;
+        int ties = 0;
+        float bestProbability = 2f;
+        for (int i = 0; i < sizeX * sizeY; i++) {
+            if (!isCovered(board, i) || mine[i]) {
+                continue;
+            }
+            final float p = probability.getProbability(i % sizeX, i / sizeX);
+            // ties are broken uniformly at random, so equal cells are not taken in scan order
+            if (p < bestProbability) {
+                bestProbability = p;
+                best = i;
+                ties = 1;
+            } else if (p == bestProbability && rng.nextInt(++ties) == 0) {
+                best = i;
+            }
+        }
+        certain = bestProbability == 0f;
+        return best;
+    }
+
+    @Override
+    public boolean wasGuess() {
+        return super.wasGuess() && !certain;
+    }
+}
@@ -0,0 +1,46 @@
+package com.karmaflux.minesweeper.simulator;
+
+import com.karmaflux.minesweeper.core.CellState;
+import com.karmaflux.minesweeper.core.MineBoard;
+import com.karmaflux.minesweeper.core.SplitMix64;
+
+/**
+ * Digs covered cells in a random order, every dig is a guess. The baseline other bots are
+ * compared against.
+ */
+public class RandomBot implements IBot {
+    private int[] order = new int[0];
+    private int next;
+
+    @Override
+    public void reset(MineBoard board, SplitMix64 rng) {
+        final int size = board.getSizeX() * board.getSizeY();
+        if (order.length != size) {
+            order = new int[size];
+        }
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            final int j = rng.nextInt(i + 1);
+            final int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        next = 0;
+    }
+
+    @Override
+    public int nextDig(MineBoard board) {
+        final int sizeX = board.getSizeX();
+        while (board.getCellState(order[next] % sizeX, order[next] / sizeX) == CellState.UNCOVERED) {
+            next++; // opened by an earlier flood fill
+        }
+        return order[next++];
+    }
+
+    @Override
+    public boolean wasGuess() {
+        return true;
+    }
+}
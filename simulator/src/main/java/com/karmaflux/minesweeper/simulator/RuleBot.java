@@ -0,0 +1,137 @@
+package com.karmaflux.minesweeper.simulator;
+
+import java.util.Arrays;
+
+import com.karmaflux.minesweeper.core.CellState;
+import com.karmaflux.minesweeper.core.MineBoard;
+import com.karmaflux.minesweeper.core.SplitMix64;
+
+/**
+ * Plays with the single cell rule: a number with as many known mines around it as its value
+ * makes its other covered neighbours safe, one with as many covered neighbours as its value
+ * makes them all mines. When no rule applies it guesses a random covered cell not known to be
+ * a mine, see guess() for smarter bots.
+ */
+public class RuleBot implements IBot {
+    protected int sizeX;
+    protected int sizeY;
+    protected boolean[] mine = new boolean[0];
+    protected SplitMix64 rng;
+    private int[] safe = new int[0]; // deduced safe cells still to dig
+    private int safeCount;
+    private boolean guessed;
+
+    @Override
+    public void reset(MineBoard board, SplitMix64 rng) {
+        sizeX = board.getSizeX();
+        sizeY = board.getSizeY();
+        final int size = sizeX * sizeY;
+        if (mine.length != size) {
+            mine = new boolean[size];
+            safe = new int[size];
+        } else {
+            Arrays.fill(mine, false);
+        }
+        safeCount = 0;
+        this.rng = rng;
+    }
+
+    @Override
+    public int nextDig(MineBoard board) {
+        guessed = false;
+        while (true) {
+            while (safeCount > 0) {
+                final int i = safe[--safeCount];
+                if (isCovered(board, i)) {
+                    return i;
+                }
+            }
+            if (!deduce(board)) {
+                break;
+            }
+        }
+        guessed = true;
+        return guess(board);
+    }
+
+    @Override
+    public boolean wasGuess() {
+        return guessed;
+    }
+
+    /**
+     * @return A covered cell to dig when nothing is known to be safe
+     */
+    protected int guess(MineBoard board) {
+        final int size = sizeX * sizeY;
+        int candidates = 0;
+        for (int i = 0; i < size; i++) {
+            if (isCovered(board, i) && !mine[i]) {
+                candidates++;
+            }
+        }
+        int pick = rng.nextInt(candidates);
+        for (int i = 0; i < size; i++) {
+            if (isCovered(board, i) && !mine[i] && pick-- == 0) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("No covered cell left to guess");
+    }
+
+    protected final boolean isCovered(MineBoard board, int i) {
+        return board.getCellState(i % sizeX, i / sizeX) != CellState.UNCOVERED;
+    }
+
+    /**
+     * One pass of the single cell rule over every number
+     *
+     * @return True if it found new mines or safe cells
+     */
+    private boolean deduce(MineBoard board) {
+        boolean progress = false;
+        for (int y = 0; y < sizeY; y++) {
+            for (int x = 0; x < sizeX; x++) {
+                if (board.getCellState(x, y) != CellState.UNCOVERED || board.getAdjacentBombs(x, y) == 0) {
+                    continue;
+                }
+                int unknown = 0;
+                int mines = 0;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++) {
+                        final int n = nx + ny * sizeX;
+                        if (mine[n]) {
+                            mines++;
+                        } else if (isCovered(board, n)) {
+                            unknown++;
+                        }
+                    }
+                }
+                if (unknown == 0) {
+                    continue;
+                }
+                final int remaining = board.getAdjacentBombs(x, y) - mines;
+                if (remaining != 0 && remaining != unknown) {
+                    continue;
+                }
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++) {
+                        final int n = nx + ny * sizeX;
+                        if (!mine[n] && isCovered(board, n)) {
+                            if (remaining == 0) {
+                                safe[safeCount++] = n;
+                            } else {
+                                mine[n] = true;
+                            }
+                        }
+                    }
+                }
+                if (remaining == 0) {
+                    return true; // dig these before looking further, the board changes with them
+                }
+                progress = true;
+            }
+        }
+        return progress;
+    }
+}
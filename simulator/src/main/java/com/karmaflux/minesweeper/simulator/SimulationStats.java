@@ -0,0 +1,73 @@
+package com.karmaflux.minesweeper.simulator;
+
+/**
+ * Totals of a batch of games, merged up the fork/join tree
+ */
+public class SimulationStats {
+    private static final int MAX_GUESSES = 32;
+    private static final int CLEARED_BUCKETS = 20; // 5% each
+
+    long games;
+    long wins;
+    long freeDigWins; // won by the free dig alone, before the bot made a move
+    long firstMoveLosses;
+    final Histogram guesses = new Histogram(MAX_GUESSES);
+    final Histogram guessesInWins = new Histogram(MAX_GUESSES);
+    final Histogram movesToWin;
+    final Histogram clearedAtLoss = new Histogram(CLEARED_BUCKETS);
+
+    SimulationStats(int cellCount) {
+        movesToWin = new Histogram(cellCount);
+    }
+
+    void recordWin(int moves, int guessCount) {
+        games++;
+        wins++;
+        if (moves == 0) {
+            freeDigWins++;
+        }
+        movesToWin.record(moves);
+        guesses.record(guessCount);
+        guessesInWins.record(guessCount);
+    }
+
+    void recordLoss(int moves, int guessCount, float clearedFraction) {
+        games++;
+        if (moves == 1) {
+            firstMoveLosses++;
+        }
+        guesses.record(guessCount);
+        clearedAtLoss.record((int) (clearedFraction * CLEARED_BUCKETS));
+    }
+
+    void add(SimulationStats other) {
+        games += other.games;
+        wins += other.wins;
+        freeDigWins += other.freeDigWins;
+        firstMoveLosses += other.firstMoveLosses;
+        guesses.add(other.guesses);
+        guessesInWins.add(other.guessesInWins);
+        movesToWin.add(other.movesToWin);
+        clearedAtLoss.add(other.clearedAtLoss);
+    }
+
+    String format() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("games            %d%n", games));
+        sb.append(String.format("win rate         %.4f%%%n", percent(wins)));
+        sb.append(String.format("free dig wins    %.4f%% (won before the first move)%n", percent(freeDigWins)));
+        sb.append(String.format("first move loss  %.4f%%%n", percent(firstMoveLosses)));
+        sb.append(String.format("no-guess wins    %.4f%%%n", percent(guessesInWins.getCount(0))));
+        sb.append(String.format("guesses/game     mean %.3f, p50 %d, p99 %d%n", guesses.getMean(),
+                guesses.getPercentile(0.5), guesses.getPercentile(0.99)));
+        sb.append(String.format("moves to win     mean %.1f, p50 %d, p99 %d%n", movesToWin.getMean(),
+                movesToWin.getPercentile(0.5), movesToWin.getPercentile(0.99)));
+        sb.append("guesses per game\n").append(guesses.format("guesses"));
+        sb.append("board cleared when lost, in 5% steps\n").append(clearedAtLoss.format("step"));
+        return sb.toString();
+    }
+
+    private double percent(long count) {
+        return games == 0 ? 0 : 100.0 * count / games;
+    }
+}
@@ -0,0 +1,218 @@
+package com.karmaflux.minesweeper.simulator;
+
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.karmaflux.minesweeper.core.Metrics;
+import com.karmaflux.minesweeper.core.MineBoard;
+import com.karmaflux.minesweeper.core.SplitMix64;
+
+/**
+ * Plays millions of games headless with a bot and prints win rates, guess rates and
+ * throughput. Games are split into batches on a fork/join pool; each worker thread reuses one
+ * board and one bot for all its games. Game n is always generated and played from the n-th
+ * seed of the run's seed stream, so results do not depend on the thread count or scheduling.
+ */
+public class Simulator {
+    private static final int BATCH_GAMES = 512;
+
+    enum Bot {
+        RANDOM, RULES, PROBABILITY;
+
+        IBot create() {
+            switch (this) {
+                case RANDOM:
+                    return new RandomBot();
+                case RULES:
+                    return new RuleBot();
+                default:
+                    return new ProbabilityBot();
+            }
+        }
+    }
+
+    private final int sizeX;
+    private final int sizeY;
+    private final float difficulty;
+    private final boolean freeDig;
+    private final Bot bot;
+    private final long seed;
+    private final ThreadLocal<Worker> workers;
+
+    Simulator(int sizeX, int sizeY, float difficulty, boolean freeDig, Bot bot, long seed) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.difficulty = difficulty;
+        this.freeDig = freeDig;
+        this.bot = bot;
+        this.seed = seed;
+        workers = ThreadLocal.withInitial(Worker::new);
+    }
+
+    // The board and bot one thread plays all of its games with
+    private class Worker {
+        final MineBoard board = new MineBoard(sizeX, sizeY, difficulty, 0);
+        final IBot player = bot.create();
+
+        void play(long game, SimulationStats stats) {
+            final SplitMix64 gameSeeds = new SplitMix64(seed + game * 0x9E3779B97F4A7C15L);
+            board.regenerate(gameSeeds.nextLong());
+            player.reset(board, gameSeeds.split());
+            if (freeDig) {
+                board.freeDig();
+            }
+            int moves = 0;
+            int guesses = 0;
+            while (!board.checkWin()) {
+                final int i = player.nextDig(board);
+                moves++;
+                if (player.wasGuess()) {
+                    guesses++;
+                }
+                if (board.dig(i % sizeX, i / sizeX)) {
+                    final int safeCells = sizeX * sizeY - board.getNumBombs();
+                    stats.recordLoss(moves, guesses,
+                            (float) (safeCells - board.getRemainingSafeCells()) / safeCells);
+                    return;
+                }
+            }
+            stats.recordWin(moves, guesses);
+        }
+    }
+
+    private class Batch extends RecursiveTask<SimulationStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+
+        Batch(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationStats compute() {
+            if (to - from <= BATCH_GAMES) {
+                final Worker worker = workers.get();
+                final SimulationStats stats = new SimulationStats(sizeX * sizeY);
+                for (long game = from; game < to; game++) {
+                    worker.play(game, stats);
+                }
+                return stats;
+            }
+            final long middle = (from + to) >>> 1;
+            final Batch left = new Batch(from, middle);
+            left.fork();
+            final SimulationStats stats = new Batch(middle, to).compute();
+            stats.add(left.join());
+            return stats;
+        }
+    }
+
+    SimulationStats run(long games, ForkJoinPool pool) {
+        return pool.invoke(new Batch(0, games));
+    }
+
+    public static void main(String[] args) {
+        int sizeX = 30;
+        int sizeY = 16;
+        float difficulty = 0.2f;
+        long games = 100_000;
+        boolean freeDig = true;
+        Bot bot = Bot.RULES;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean scaling = false;
+        boolean metrics = false;
+        try {
+            for (int a = 0; a < args.length; a++) {
+                switch (args[a]) {
+                    case "--size":
+                        final String[] dims = args[++a].split("x");
+                        sizeX = Integer.parseInt(dims[0]);
+                        sizeY = Integer.parseInt(dims[1]);
+                        break;
+                    case "--difficulty":
+                        difficulty = Float.parseFloat(args[++a]);
+                        break;
+                    case "--games":
+                        games = Long.parseLong(args[++a]);
+                        break;
+                    case "--bot":
+                        bot = Bot.valueOf(args[++a].toUpperCase(Locale.ROOT));
+                        break;
+                    case "--no-free-dig":
+                        freeDig = false;
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++a]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++a]);
+                        break;
+                    case "--scaling":
+                        scaling = true;
+                        break;
+                    case "--metrics":
+                        metrics = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException(args[a]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Unknown or invalid argument: " + e.getMessage());
+            System.err.println("Options: --size WxH --difficulty F --games N --bot random|rules|probability"
+                    + " --no-free-dig --seed N --threads N --scaling --metrics");
+            System.exit(2);
+            return;
+        }
+
+        final Simulator simulator = new Simulator(sizeX, sizeY, difficulty, freeDig, bot, seed);
+        System.out.printf("%dx%d, difficulty %.2f, %d bombs, %s bot, free dig %s%n", sizeX, sizeY, difficulty,
+                MineBoard.estimateBombs(sizeX, sizeY, difficulty), bot.name().toLowerCase(Locale.ROOT),
+                freeDig ? "on" : "off");
+
+        // a short run first, so the timed runs measure compiled code
+        simulator.run(Math.min(games, 20 * BATCH_GAMES), ForkJoinPool.commonPool());
+
+        double singleThreadRate = 0;
+        if (scaling && threads > 1) {
+            singleThreadRate = timedRun(simulator, games, 1).rate;
+        }
+        // only the final run is measured, the timings would skew its throughput otherwise
+        Metrics.reset();
+        Metrics.setEnabled(metrics);
+        final TimedRun result = timedRun(simulator, games, threads);
+        System.out.print(result.stats.format());
+        System.out.printf("throughput       %.0f games/s on %d threads, %.0f games/s/core%n",
+                result.rate, threads, result.rate / threads);
+        if (singleThreadRate > 0) {
+            System.out.printf("scaling          %.2fx over 1 thread (%.0f%% efficient)%n",
+                    result.rate / singleThreadRate, 100 * result.rate / singleThreadRate / threads);
+        }
+        if (metrics) {
+            System.out.print(Metrics.dump());
+        }
+    }
+
+    private static final class TimedRun {
+        SimulationStats stats;
+        double rate;
+    }
+
+    private static TimedRun timedRun(Simulator simulator, long games, int threads) {
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            final TimedRun run = new TimedRun();
+            final long start = System.nanoTime();
+            run.stats = simulator.run(games, pool);
+            run.rate = games / ((System.nanoTime() - start) / 1e9);
+            return run;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}